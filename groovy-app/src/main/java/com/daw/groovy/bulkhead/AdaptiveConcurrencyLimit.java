@@ -0,0 +1,127 @@
+package com.daw.groovy.bulkhead;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A concurrency limit that follows the latency of the requests it lets through, in the
+ * manner of TCP Vegas. While latency stays near its long-term average the limit grows by
+ * about its square root; once requests start to queue and latency rises above it, the
+ * limit shrinks in proportion, so excess load is turned away instead of piling up and
+ * slowing every request down.
+ *
+ * Bulk requests may only use part of the limit, so they are turned away first, and
+ * critical requests are always let through. Critical requests are left out of the
+ * in-flight count and the latency averages altogether: logins hash passwords and take
+ * far longer than catalog reads, and a burst of them would otherwise shrink the limit
+ * while the database is idle.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    // Exponential averages over about the last 10 and 500 requests
+    private static final double SHORT_ALPHA = 2.0 / (10 + 1);
+    private static final double LONG_ALPHA = 2.0 / (500 + 1);
+    // How far latency may rise above its long-term average before the limit shrinks
+    private static final double TOLERANCE = 1.5;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double smoothing;
+    private final double bulkShare;
+    private final AtomicInteger inflight = new AtomicInteger();
+    private final Map<Priority, LongAdder> rejected = new EnumMap<>(Priority.class);
+    private volatile double limit;
+    private double shortLatency;
+    private double longLatency;
+
+    /**
+     * @param initialLimit The limit until latency has been observed
+     * @param minLimit The limit never goes below this
+     * @param maxLimit The limit never goes above this
+     * @param smoothing How much of each adjustment is applied at once, between 0 and 1
+     * @param bulkShare The part of the limit bulk requests may use, between 0 and 1
+     */
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, double smoothing, double bulkShare) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.smoothing = smoothing;
+        this.bulkShare = bulkShare;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        for (Priority priority : Priority.values()) {
+            rejected.put(priority, new LongAdder());
+        }
+    }
+
+    /**
+     * Start a request if the limit allows it. A request that started must be ended with
+     * {@link #release(long)}.
+     *
+     * @param priority The priority of the request
+     * @return Whether the request may go ahead
+     */
+    public boolean tryAcquire(Priority priority) {
+        if (priority == Priority.CRITICAL) {
+            return true;
+        }
+        int allowed = Math.max(1, (int) (limit * (priority == Priority.BULK ? bulkShare : 1.0)));
+        while (true) {
+            int current = inflight.get();
+            if (current >= allowed) {
+                rejected.get(priority).increment();
+                return false;
+            }
+            if (inflight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * End a request and adjust the limit to how long it took.
+     *
+     * @param priority The priority the request was started with
+     * @param latencyNanos How long the request took
+     */
+    public void release(Priority priority, long latencyNanos) {
+        if (priority == Priority.CRITICAL) {
+            return;
+        }
+        int current = inflight.getAndDecrement();
+        adjust(latencyNanos, current);
+    }
+
+    private synchronized void adjust(double latency, int inflight) {
+        if (longLatency == 0) {
+            shortLatency = latency;
+            longLatency = latency;
+        }
+        shortLatency += (latency - shortLatency) * SHORT_ALPHA;
+        longLatency += (latency - longLatency) * LONG_ALPHA;
+        // After a long stretch of high latency, let the baseline come back down quickly
+        if (longLatency > shortLatency * 2) {
+            longLatency *= 0.95;
+        }
+        // Latency says nothing about the limit while far fewer requests run than it allows
+        if (inflight < limit / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longLatency / shortLatency));
+        double target = limit * gradient + Math.sqrt(limit);
+        double next = limit * (1 - smoothing) + target * smoothing;
+        limit = Math.max(minLimit, Math.min(maxLimit, next));
+    }
+
+    public int limit() {
+        return (int) limit;
+    }
+
+    public int inflight() {
+        return inflight.get();
+    }
+
+    public long rejected(Priority priority) {
+        return rejected.get(priority).sum();
+    }
+}
@@ -0,0 +1,63 @@
+package com.daw.groovy.bulkhead;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.NonNull;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Sheds catalog requests beyond the adaptive concurrency limit with 503 and Retry-After,
+ * before they are authenticated. Streaming and upload requests take as long as their
+ * media does rather than as long as the server is busy, so they are left to their
+ * bulkheads.
+ */
+@Slf4j
+public class AdaptiveLimitFilter extends OncePerRequestFilter {
+
+    private final AdaptiveConcurrencyLimit limit;
+    private final long retryAfterSeconds;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * @param limit The limit to keep to, or null to let every request through
+     * @param retryAfterSeconds When clients turned away should try again
+     * @param objectMapper To write error responses
+     */
+    public AdaptiveLimitFilter(AdaptiveConcurrencyLimit limit, long retryAfterSeconds, ObjectMapper objectMapper) {
+        this.limit = limit;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        if (limit == null || TrafficClass.of(request) != TrafficClass.CATALOG) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        Priority priority = Priority.of(request);
+        if (!limit.tryAcquire(priority)) {
+            log.debug("Shedding {} {} at a limit of {}", request.getMethod(), request.getRequestURI(), limit.limit());
+            BulkheadFilter.reject(objectMapper, request, response, "The server is busy, try again later", retryAfterSeconds);
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            limit.release(priority, System.nanoTime() - start);
+        }
+    }
+}
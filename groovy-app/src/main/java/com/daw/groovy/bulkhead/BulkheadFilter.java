@@ -0,0 +1,113 @@
+package com.daw.groovy.bulkhead;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.lang.NonNull;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.daw.groovy.dto.ErrorResponse;
+import com.daw.groovy.exception.BulkheadFullException;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Map;
+
+/**
+ * Runs each API request inside the bulkhead of its traffic class, so long streams and
+ * large uploads cannot take every request thread from cheap catalog reads. Requests
+ * turned away get 503 with Retry-After before they are authenticated or their body is
+ * read.
+ */
+@Slf4j
+public class BulkheadFilter extends OncePerRequestFilter {
+
+    private final Map<TrafficClass, Bulkhead> bulkheads;
+    private final long retryAfterSeconds;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * @param bulkheads The bulkhead of each traffic class; classes without one are not limited
+     * @param retryAfterSeconds When clients turned away should try again
+     * @param objectMapper To write error responses
+     */
+    public BulkheadFilter(Map<TrafficClass, Bulkhead> bulkheads, long retryAfterSeconds, ObjectMapper objectMapper) {
+        this.bulkheads = bulkheads;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    protected void doFilterInternal(
+            @NonNull HttpServletRequest request,
+            @NonNull HttpServletResponse response,
+            @NonNull FilterChain filterChain
+    ) throws ServletException, IOException {
+        TrafficClass trafficClass = TrafficClass.of(request);
+        Bulkhead bulkhead = trafficClass != null ? bulkheads.get(trafficClass) : null;
+        if (bulkhead == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        boolean acquired;
+        try {
+            acquired = bulkhead.tryAcquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            log.debug("Turning away {} {}, {} traffic is at its limit", request.getMethod(), request.getRequestURI(), trafficClass.key());
+            reject(objectMapper, request, response, "Too many " + trafficClass.key() + " requests, try again later", retryAfterSeconds);
+            return;
+        }
+
+        TrafficClass.setCurrent(trafficClass);
+        try {
+            filterChain.doFilter(request, response);
+        } catch (ServletException | IOException | RuntimeException e) {
+            // Filters such as authentication can run out of their database connection quota
+            // before the exception handlers of the controllers are in reach
+            BulkheadFullException bulkheadFull = findBulkheadFull(e);
+            if (bulkheadFull == null || response.isCommitted()) {
+                throw e;
+            }
+            reject(objectMapper, request, response, bulkheadFull.getMessage(), bulkheadFull.getRetryAfterSeconds());
+        } finally {
+            TrafficClass.setCurrent(null);
+            bulkhead.release();
+        }
+    }
+
+    private static BulkheadFullException findBulkheadFull(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof BulkheadFullException bulkheadFull) {
+                return bulkheadFull;
+            }
+        }
+        return null;
+    }
+
+    static void reject(ObjectMapper objectMapper, HttpServletRequest request, HttpServletResponse response,
+                       String message, long retryAfterSeconds) throws IOException {
+        ErrorResponse errorResponse = ErrorResponse.builder()
+                .message(message)
+                .status(HttpStatus.SERVICE_UNAVAILABLE.value())
+                .timestamp(LocalDateTime.now())
+                .path(request.getRequestURI())
+                .errors(new ArrayList<>())
+                .build();
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), errorResponse);
+    }
+}
@@ -0,0 +1,122 @@
+package com.daw.groovy.bulkhead;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import com.daw.groovy.exception.BulkheadFullException;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Caps how many pooled connections each traffic class holds at once, so a burst of one
+ * class cannot take the whole pool while the others wait for it. Connections asked for
+ * outside of a request, by background tasks, are not limited.
+ *
+ * With open-in-view a request keeps the connection it first used until it completes, so
+ * a quota also caps how many requests of its class can run at once. That is why
+ * streaming and uploads have no quota by default: every stream would hold one for its
+ * whole length, and every chunk upload until its body has been written to disk.
+ */
+public class ConnectionQuotaDataSource extends DelegatingDataSource {
+
+    private final Map<TrafficClass, Bulkhead> quotas;
+    private final long retryAfterSeconds;
+
+    /**
+     * @param dataSource The pool
+     * @param quotas The quota of each traffic class; classes without one are not limited
+     * @param retryAfterSeconds When clients turned away should try again
+     */
+    public ConnectionQuotaDataSource(DataSource dataSource, Map<TrafficClass, Bulkhead> quotas, long retryAfterSeconds) {
+        super(dataSource);
+        this.quotas = quotas;
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public Map<TrafficClass, Bulkhead> getQuotas() {
+        return quotas;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Bulkhead quota = acquire();
+        if (quota == null) {
+            return super.getConnection();
+        }
+        try {
+            return releasingOnClose(super.getConnection(), quota);
+        } catch (SQLException | RuntimeException e) {
+            quota.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        Bulkhead quota = acquire();
+        if (quota == null) {
+            return super.getConnection(username, password);
+        }
+        try {
+            return releasingOnClose(super.getConnection(username, password), quota);
+        } catch (SQLException | RuntimeException e) {
+            quota.release();
+            throw e;
+        }
+    }
+
+    /**
+     * @return The quota a connection was taken from, or null if the caller has none
+     */
+    private Bulkhead acquire() throws SQLException {
+        TrafficClass trafficClass = TrafficClass.current();
+        Bulkhead quota = trafficClass != null ? quotas.get(trafficClass) : null;
+        if (quota == null) {
+            return null;
+        }
+        try {
+            if (quota.tryAcquire()) {
+                return quota;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for a database connection", e);
+        }
+        String message = "Too many " + trafficClass.key() + " requests are using the database, try again later";
+        throw new SQLTransientConnectionException(message, new BulkheadFullException(message, retryAfterSeconds));
+    }
+
+    private static Connection releasingOnClose(Connection connection, Bulkhead quota) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] {Connection.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "equals" -> proxy == args[0];
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "close" -> {
+                        try {
+                            yield invoke(connection, method, args);
+                        } finally {
+                            if (released.compareAndSet(false, true)) {
+                                quota.release();
+                            }
+                        }
+                    }
+                    default -> invoke(connection, method, args);
+                });
+    }
+
+    private static Object invoke(Connection connection, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(connection, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package com.daw.groovy.bulkhead;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpMethod;
+
+import java.util.regex.Pattern;
+
+/**
+ * How readily a catalog request is shed under overload: logins and health checks never
+ * are, listings and searches of whole collections are first, everything else after them.
+ */
+public enum Priority {
+
+    CRITICAL,
+    NORMAL,
+    BULK;
+
+    private static final Pattern BULK_PATH = Pattern.compile(
+            "/api/(songs|albums|artists|playlists|users|favorites)"
+            + "(/search|/album/\\d+|/artist/\\d+|/user/\\d+)?");
+
+    /**
+     * @param request An incoming request
+     * @return The priority of the request
+     */
+    public static Priority of(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        if (path.startsWith("/api/auth/") || path.startsWith("/api/health") || path.startsWith("/actuator/health")) {
+            return CRITICAL;
+        }
+        if (HttpMethod.GET.matches(request.getMethod()) && BULK_PATH.matcher(path).matches()) {
+            return BULK;
+        }
+        return NORMAL;
+    }
+}
@@ -0,0 +1,73 @@
+package com.daw.groovy.bulkhead;
+
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * The kinds of API traffic that are kept from starving each other: long-running media
+ * responses, request bodies being uploaded, and everything else, which is mostly cheap
+ * reads of the catalog.
+ */
+public enum TrafficClass {
+
+    STREAMING,
+    UPLOAD,
+    CATALOG;
+
+    private static final Pattern STREAMING_PATH = Pattern.compile(
+            "/api/files/[^/]+"
+            + "|/api/songs/\\d+/(stream|hls/.+|preview/.+)"
+            + "|/api/(albums|playlists)/\\d+/download");
+
+    private static final ThreadLocal<TrafficClass> CURRENT = new ThreadLocal<>();
+
+    /**
+     * @return The name used for the class in configuration and metrics
+     */
+    public String key() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @param request An incoming request
+     * @return The class of the request, or null if it is not API traffic, such as health
+     *         checks, documentation and CORS preflights
+     */
+    public static TrafficClass of(HttpServletRequest request) {
+        String path = request.getRequestURI();
+        if (!path.startsWith("/api/") || path.startsWith("/api/health")
+                || HttpMethod.OPTIONS.matches(request.getMethod())) {
+            return null;
+        }
+        boolean read = HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod());
+        if (read && STREAMING_PATH.matcher(path).matches()) {
+            return STREAMING;
+        }
+        String contentType = request.getContentType();
+        if ((contentType != null && contentType.toLowerCase(Locale.ROOT).startsWith(MediaType.MULTIPART_FORM_DATA_VALUE))
+                || (!read && path.startsWith("/api/uploads/"))) {
+            return UPLOAD;
+        }
+        return CATALOG;
+    }
+
+    /**
+     * @return The class of the request the current thread is handling, or null if it is
+     *         not handling one, such as a background task
+     */
+    public static TrafficClass current() {
+        return CURRENT.get();
+    }
+
+    static void setCurrent(TrafficClass trafficClass) {
+        if (trafficClass == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(trafficClass);
+        }
+    }
+}
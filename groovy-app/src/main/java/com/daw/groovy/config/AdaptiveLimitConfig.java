@@ -0,0 +1,79 @@
+package com.daw.groovy.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.daw.groovy.bulkhead.AdaptiveConcurrencyLimit;
+import com.daw.groovy.bulkhead.AdaptiveLimitFilter;
+import com.daw.groovy.bulkhead.Priority;
+
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Sheds catalog requests under overload by an adaptive concurrency limit, configured
+ * under limiter.*.
+ */
+@Configuration
+public class AdaptiveLimitConfig {
+
+    @Value("${limiter.enabled:true}")
+    private boolean enabled;
+
+    @Value("${limiter.initial-limit:20}")
+    private int initialLimit;
+
+    @Value("${limiter.min-limit:4}")
+    private int minLimit;
+
+    @Value("${limiter.max-limit:150}")
+    private int maxLimit;
+
+    @Value("${limiter.smoothing:0.2}")
+    private double smoothing;
+
+    @Value("${limiter.bulk-share:0.5}")
+    private double bulkShare;
+
+    @Value("${limiter.retry-after:1s}")
+    private Duration retryAfter;
+
+    @Bean
+    public AdaptiveLimitFilter adaptiveLimitFilter(ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        AdaptiveConcurrencyLimit limit = null;
+        if (enabled) {
+            limit = new AdaptiveConcurrencyLimit(initialLimit, minLimit, maxLimit, smoothing, bulkShare);
+            registerMetrics(meterRegistry, limit);
+        }
+        return new AdaptiveLimitFilter(limit, retryAfter.toSeconds(), objectMapper);
+    }
+
+    @Bean
+    public FilterRegistrationBean<AdaptiveLimitFilter> adaptiveLimitFilterRegistration(AdaptiveLimitFilter adaptiveLimitFilter) {
+        // Runs inside the security filter chain instead, see SecurityConfig
+        FilterRegistrationBean<AdaptiveLimitFilter> registration = new FilterRegistrationBean<>(adaptiveLimitFilter);
+        registration.setEnabled(false);
+        return registration;
+    }
+
+    private void registerMetrics(MeterRegistry registry, AdaptiveConcurrencyLimit limit) {
+        Gauge.builder("groovy.limiter.limit", limit, AdaptiveConcurrencyLimit::limit)
+                .description("Catalog requests currently allowed to run at once")
+                .register(registry);
+        Gauge.builder("groovy.limiter.inflight", limit, AdaptiveConcurrencyLimit::inflight)
+                .description("Catalog requests running within the limit, critical ones aside")
+                .register(registry);
+        for (Priority priority : Priority.values()) {
+            FunctionCounter.builder("groovy.limiter.rejected", limit, l -> l.rejected(priority))
+                    .tag("priority", priority.name().toLowerCase(Locale.ROOT))
+                    .description("Catalog requests shed because the concurrency limit was reached")
+                    .register(registry);
+        }
+    }
+}
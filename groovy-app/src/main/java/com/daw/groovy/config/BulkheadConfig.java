@@ -0,0 +1,126 @@
+package com.daw.groovy.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import com.daw.groovy.bulkhead.Bulkhead;
+import com.daw.groovy.bulkhead.BulkheadFilter;
+import com.daw.groovy.bulkhead.ConnectionQuotaDataSource;
+import com.daw.groovy.bulkhead.TrafficClass;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Gives streaming, upload and catalog traffic their own share of request threads and
+ * database connections, configured under bulkhead.&lt;class&gt;.*. A limit of 0 leaves a
+ * class unlimited, and bulkhead.enabled=false turns the bulkheads off altogether.
+ */
+@Configuration
+public class BulkheadConfig {
+
+    private record Limits(int maxConcurrent, int maxQueue, Duration maxWait, int dbConnections) {
+    }
+
+    @Bean
+    public BulkheadFilter bulkheadFilter(Environment environment, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        Map<TrafficClass, Bulkhead> bulkheads = new EnumMap<>(TrafficClass.class);
+        if (enabled(environment)) {
+            for (TrafficClass trafficClass : TrafficClass.values()) {
+                Limits limits = limits(environment, trafficClass);
+                if (limits.maxConcurrent() > 0) {
+                    Bulkhead bulkhead = new Bulkhead(limits.maxConcurrent(), limits.maxQueue(), limits.maxWait());
+                    registerMetrics(meterRegistry, "groovy.bulkhead", trafficClass, bulkhead);
+                    bulkheads.put(trafficClass, bulkhead);
+                }
+            }
+        }
+        return new BulkheadFilter(Collections.unmodifiableMap(bulkheads), retryAfterSeconds(environment), objectMapper);
+    }
+
+    @Bean
+    public FilterRegistrationBean<BulkheadFilter> bulkheadFilterRegistration(BulkheadFilter bulkheadFilter) {
+        // Runs inside the security filter chain instead, see SecurityConfig
+        FilterRegistrationBean<BulkheadFilter> registration = new FilterRegistrationBean<>(bulkheadFilter);
+        registration.setEnabled(false);
+        return registration;
+    }
+
+    @Bean
+    public static BeanPostProcessor connectionQuotaPostProcessor(Environment environment) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof ConnectionQuotaDataSource
+                        || !enabled(environment)) {
+                    return bean;
+                }
+                Duration maxWait = environment.getProperty("bulkhead.db-max-wait", Duration.class, Duration.ofSeconds(2));
+                Map<TrafficClass, Bulkhead> quotas = new EnumMap<>(TrafficClass.class);
+                for (TrafficClass trafficClass : TrafficClass.values()) {
+                    int connections = limits(environment, trafficClass).dbConnections();
+                    if (connections > 0) {
+                        // Requests already wait in the pool, so only the wait is bounded here
+                        quotas.put(trafficClass, new Bulkhead(connections, Integer.MAX_VALUE, maxWait));
+                    }
+                }
+                return quotas.isEmpty() ? bean : new ConnectionQuotaDataSource(
+                        dataSource, Collections.unmodifiableMap(quotas), retryAfterSeconds(environment));
+            }
+        };
+    }
+
+    @Bean
+    public MeterBinder connectionQuotaMetrics(DataSource dataSource) {
+        return registry -> {
+            if (dataSource instanceof ConnectionQuotaDataSource quotaDataSource) {
+                quotaDataSource.getQuotas().forEach((trafficClass, quota) ->
+                        registerMetrics(registry, "groovy.bulkhead.db", trafficClass, quota));
+            }
+        };
+    }
+
+    private static boolean enabled(Environment environment) {
+        return environment.getProperty("bulkhead.enabled", Boolean.class, true);
+    }
+
+    private static long retryAfterSeconds(Environment environment) {
+        return environment.getProperty("bulkhead.retry-after", Duration.class, Duration.ofSeconds(5)).toSeconds();
+    }
+
+    private static Limits limits(Environment environment, TrafficClass trafficClass) {
+        // The limits of each class live in application.properties only; a class left out is unlimited
+        String prefix = "bulkhead." + trafficClass.key() + ".";
+        return new Limits(
+                environment.getProperty(prefix + "max-concurrent", Integer.class, 0),
+                environment.getProperty(prefix + "max-queue", Integer.class, 0),
+                environment.getProperty(prefix + "max-wait", Duration.class, Duration.ZERO),
+                environment.getProperty(prefix + "db-connections", Integer.class, 0));
+    }
+
+    private static void registerMetrics(MeterRegistry registry, String prefix, TrafficClass trafficClass, Bulkhead bulkhead) {
+        Gauge.builder(prefix + ".active", bulkhead, Bulkhead::active)
+                .tag("class", trafficClass.key())
+                .description("Calls running within the bulkhead of a traffic class")
+                .register(registry);
+        Gauge.builder(prefix + ".queued", bulkhead, Bulkhead::queued)
+                .tag("class", trafficClass.key())
+                .description("Calls waiting for room in the bulkhead of a traffic class")
+                .register(registry);
+        FunctionCounter.builder(prefix + ".rejected", bulkhead, Bulkhead::rejected)
+                .tag("class", trafficClass.key())
+                .description("Calls turned away because the bulkhead of a traffic class was full")
+                .register(registry);
+    }
+}
@@ -0,0 +1,54 @@
+package com.daw.groovy.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.core.userdetails.UserDetailsService;
+
+import com.daw.groovy.mediaserver.MediaServer;
+import com.daw.groovy.repository.SongRepository;
+import com.daw.groovy.security.JwtAccessTokenVerifier;
+import com.daw.groovy.security.JwtService;
+import com.daw.groovy.storage.StorageService;
+import com.daw.groovy.streaming.ImageCache;
+import com.daw.groovy.streaming.MediaStreamer;
+import com.daw.groovy.streaming.StorageMediaLibrary;
+
+/**
+ * Starts the Netty media server next to the API when media.server.enabled is set. It
+ * serves from the same storage and accepts the same tokens; run the application with
+ * the media profile to have a process that only serves media.
+ */
+@Configuration
+@ConditionalOnProperty(name = "media.server.enabled", havingValue = "true")
+public class MediaServerConfig {
+
+    @Value("${media.server.port:8081}")
+    private int port;
+
+    @Value("${media.server.io-threads:0}")
+    private int ioThreads;
+
+    @Value("${media.server.handler-threads:16}")
+    private int handlerThreads;
+
+    @Value("${media.server.idle-timeout:60}")
+    private int idleTimeoutSeconds;
+
+    @Value("${FRONTEND_URL}")
+    private String frontendUrl;
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public MediaServer mediaServer(StorageService storageService,
+                                   SongRepository songRepository,
+                                   MediaStreamer mediaStreamer,
+                                   ImageCache imageCache,
+                                   JwtService jwtService,
+                                   UserDetailsService userDetailsService) {
+        return new MediaServer(
+                new StorageMediaLibrary(storageService, songRepository, mediaStreamer, imageCache),
+                new JwtAccessTokenVerifier(jwtService, userDetailsService),
+                new MediaServer.Settings(port, ioThreads, handlerThreads, idleTimeoutSeconds, frontendUrl));
+    }
+}
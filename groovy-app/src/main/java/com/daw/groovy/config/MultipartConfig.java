@@ -0,0 +1,32 @@
+package com.daw.groovy.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MultipartResolver;
+import org.springframework.web.servlet.DispatcherServlet;
+
+import com.daw.groovy.storage.StorageService;
+import com.daw.groovy.upload.StreamingMultipartResolver;
+
+/**
+ * Replaces the container's multipart handling with a resolver that streams uploads
+ * into storage. Container parsing is switched off with spring.servlet.multipart.enabled,
+ * so the body is never spooled to a temporary file first; the size limits keep their
+ * usual property names.
+ */
+@Configuration
+public class MultipartConfig {
+
+    @Value("${spring.servlet.multipart.max-file-size:20MB}")
+    private DataSize maxFileSize;
+
+    @Value("${spring.servlet.multipart.max-request-size:20MB}")
+    private DataSize maxRequestSize;
+
+    @Bean(name = DispatcherServlet.MULTIPART_RESOLVER_BEAN_NAME)
+    public MultipartResolver multipartResolver(StorageService storageService) {
+        return new StreamingMultipartResolver(storageService, maxFileSize.toBytes(), maxRequestSize.toBytes());
+    }
+}
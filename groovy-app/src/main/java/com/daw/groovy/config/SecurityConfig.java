@@ -20,7 +20,10 @@ import org.springframework.security.web.authentication.UsernamePasswordAuthentic
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
 import org.springframework.web.cors.UrlBasedCorsConfigurationSource;
+import org.springframework.web.filter.CorsFilter;
 
+import com.daw.groovy.bulkhead.AdaptiveLimitFilter;
+import com.daw.groovy.bulkhead.BulkheadFilter;
 import com.daw.groovy.repository.UserRepository;
 import com.daw.groovy.security.JwtAuthenticationFilter;
 import com.daw.groovy.security.JwtService;
@@ -36,12 +39,17 @@ public class SecurityConfig {
 
     private final UserRepository userRepository;
     private final JwtService jwtService;
+    private final BulkheadFilter bulkheadFilter;
+    private final AdaptiveLimitFilter adaptiveLimitFilter;
     @Value("${FRONTEND_URL}")
     private String frontendUrl;
 
-    public SecurityConfig(UserRepository userRepository, JwtService jwtService) {
+    public SecurityConfig(UserRepository userRepository, JwtService jwtService,
+                          BulkheadFilter bulkheadFilter, AdaptiveLimitFilter adaptiveLimitFilter) {
         this.userRepository = userRepository;
         this.jwtService = jwtService;
+        this.bulkheadFilter = bulkheadFilter;
+        this.adaptiveLimitFilter = adaptiveLimitFilter;
     }
 
     @Bean
@@ -60,6 +68,8 @@ public class SecurityConfig {
                         .requestMatchers("/api/files/**").permitAll()
                         .requestMatchers("/api/swagger-test/**").permitAll()
                         .requestMatchers("/api/health").permitAll()
+                        .requestMatchers("/actuator/health").permitAll()
+                        .requestMatchers("/actuator/**").hasRole("ADMIN")
                         // Updated Swagger UI paths
                         .requestMatchers("/v3/api-docs/**").permitAll()
                         .requestMatchers("/v3/api-docs.yaml").permitAll()
@@ -74,7 +84,10 @@ public class SecurityConfig {
                         .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
                 )
                 .authenticationProvider(authenticationProvider())
+                // After CORS so rejections can be read by the frontend, before authentication touches the database
+                .addFilterAfter(bulkheadFilter, CorsFilter.class)
                 .addFilterBefore(jwtAuthenticationFilter(), UsernamePasswordAuthenticationFilter.class)
+                .addFilterBefore(adaptiveLimitFilter, JwtAuthenticationFilter.class)
                 .headers(headers -> headers
                         .frameOptions(frameOptionsConfig -> frameOptionsConfig.disable()));
         
@@ -87,9 +100,10 @@ public class SecurityConfig {
         configuration.setAllowedOrigins(Arrays.asList(
             frontendUrl
         ));
-        configuration.setAllowedMethods(Arrays.asList("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS"));
-        configuration.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type", "X-Requested-With"));
-        configuration.setExposedHeaders(List.of("Authorization"));
+        configuration.setAllowedMethods(Arrays.asList("GET", "HEAD", "POST", "PUT", "PATCH", "DELETE", "OPTIONS"));
+        configuration.setAllowedHeaders(Arrays.asList("Authorization", "Content-Type", "X-Requested-With", "Upload-Offset", "Upload-Length"));
+        configuration.setExposedHeaders(List.of("Authorization", "X-Seek-Time", "X-Seek-Offset", "Retry-After", "Content-Disposition", "Link",
+                "Upload-Offset", "Upload-Length", "Location"));
         configuration.setAllowCredentials(true);
         configuration.setMaxAge(3600L); // 1 hour
         
@@ -0,0 +1,59 @@
+package com.daw.groovy.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+
+import com.daw.groovy.repository.StoredFileRepository;
+import com.daw.groovy.storage.CachingStorageService;
+import com.daw.groovy.storage.ContentAddressedStorageService;
+import com.daw.groovy.storage.FileSystemStorageService;
+import com.daw.groovy.storage.StorageService;
+
+import java.util.Set;
+
+/**
+ * Assembles the StorageService used by the application: the file system store,
+ * optionally wrapped in the decorators enabled by configuration.
+ */
+@Configuration
+public class StorageConfig {
+
+    private static final String CONTENT_ADDRESSED_MODE = "content-addressed";
+
+    @Value("${storage.mode:filesystem}")
+    private String storageMode;
+
+    @Value("${storage.cache.enabled:false}")
+    private boolean cacheEnabled;
+
+    @Value("${storage.cache.max-size:512MB}")
+    private DataSize cacheMaxSize;
+
+    @Value("${storage.cache.max-file-size:50MB}")
+    private DataSize cacheMaxFileSize;
+
+    @Value("${storage.cache.extensions:mp3,flac,ogg,wav}")
+    private Set<String> cacheExtensions;
+
+    @Bean
+    @Primary
+    public StorageService storageService(FileSystemStorageService fileSystemStorageService,
+                                         StoredFileRepository storedFileRepository,
+                                         PlatformTransactionManager transactionManager,
+                                         MeterRegistry meterRegistry) {
+        StorageService storage = fileSystemStorageService;
+        if (CONTENT_ADDRESSED_MODE.equalsIgnoreCase(storageMode)) {
+            storage = new ContentAddressedStorageService(storage, storedFileRepository, transactionManager);
+        }
+        if (cacheEnabled) {
+            storage = new CachingStorageService(storage, cacheMaxSize.toBytes(), cacheMaxFileSize.toBytes(),
+                    cacheExtensions, meterRegistry);
+        }
+        return storage;
+    }
+}
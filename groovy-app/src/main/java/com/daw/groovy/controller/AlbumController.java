@@ -9,6 +9,8 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.MediaType;
@@ -19,8 +21,11 @@ import org.springframework.web.multipart.MultipartFile;
 
 import com.daw.groovy.dto.AlbumDto;
 import com.daw.groovy.service.AlbumService;
+import com.daw.groovy.service.DownloadService;
 import com.daw.groovy.storage.StorageService;
+import com.daw.groovy.streaming.ZipStreamer;
 
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -32,6 +37,8 @@ public class AlbumController {
 
     private final AlbumService albumService;
     private final StorageService storageService;
+    private final DownloadService downloadService;
+    private final ZipStreamer zipStreamer;
 
     @GetMapping
     @Operation(
@@ -216,7 +223,7 @@ public class AlbumController {
     @PreAuthorize("hasAnyRole('ADMIN', 'ARTIST')")
     @Operation(
         summary = "Upload album cover image", 
-        description = "Uploads a cover image for a specific album. Only the album's artist or an admin can upload a cover image."
+        description = "Uploads a cover image for a specific album. Only the album's artist or an admin can upload a cover image. Resized variants are generated in the background and served by /api/files/{filename}?size="
     )
     @ApiResponses(value = {
         @ApiResponse(
@@ -243,9 +250,13 @@ public class AlbumController {
         // Verify album exists
         AlbumDto album = albumService.getAlbumById(id);
         
-        // Store the file with a predictable name for easier retrieval
-        String filename = "album" + id + "." + getFileExtension(file.getOriginalFilename());
-        storageService.store(file, filename);
+        // Release the previous cover so storage can reclaim it
+        if (album.getCoverImage() != null) {
+            storageService.delete(album.getCoverImage());
+        }
+        
+        // Store the file with a predictable name for easier retrieval; the storage may choose another
+        String filename = storageService.store(file, "album" + id + "." + getFileExtension(file.getOriginalFilename()));
         
         // Update the album with the cover image filename
         album.setCoverImage(filename);
@@ -254,6 +265,28 @@ public class AlbumController {
         return ResponseEntity.ok(filename);
     }
     
+    @GetMapping("/{id}/download")
+    @Operation(
+        summary = "Download album", 
+        description = "Streams the album's audio files, in track order, and its cover as a single ZIP archive for offline use. Entries are stored without compression and the archive is built while it is sent, so the download starts immediately. Files missing from storage are left out."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200", 
+            description = "The album archive",
+            content = @Content(mediaType = ZipStreamer.APPLICATION_ZIP)
+        ),
+        @ApiResponse(responseCode = "401", description = "Unauthorized", ref = "UnauthorizedError"),
+        @ApiResponse(responseCode = "404", description = "Album not found, or none of its files are stored", ref = "NotFoundError")
+    })
+    public void downloadAlbum(
+            @Parameter(description = "ID of the album to download", required = true, example = "1")
+            @PathVariable Long id,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        zipStreamer.stream(downloadService.getAlbumArchive(id), request, response);
+    }
+    
     private String getFileExtension(String filename) {
         if (filename == null || filename.lastIndexOf(".") == -1) {
             return "jpg"; // Default extension
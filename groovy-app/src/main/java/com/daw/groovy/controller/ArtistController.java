@@ -5,9 +5,11 @@ import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
 
 import com.daw.groovy.dto.ArtistDto;
 import com.daw.groovy.service.ArtistService;
@@ -59,6 +61,15 @@ public class ArtistController {
         return ResponseEntity.noContent().build();
     }
     
+    @PostMapping(value = "/{id}/picture", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    @PreAuthorize("hasAnyRole('ADMIN', 'ARTIST')")
+    @Operation(summary = "Upload artist picture", description = "Upload a profile picture (JPEG or PNG) for an artist (Admin or the artist themselves). Returns the stored filename; resized variants are served by /api/files/{filename}?size=")
+    public ResponseEntity<String> uploadProfilePicture(
+            @PathVariable Long id,
+            @RequestParam("file") MultipartFile file) {
+        return ResponseEntity.ok(artistService.updateProfilePicture(id, file));
+    }
+    
     @GetMapping("/search")
     @Operation(summary = "Search artists", description = "Search for artists by name")
     public ResponseEntity<List<ArtistDto>> searchArtists(@RequestParam(required = false) String name) {
@@ -0,0 +1,81 @@
+package com.daw.groovy.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+
+import com.daw.groovy.media.ImageVariantService;
+import com.daw.groovy.storage.StorageService;
+import com.daw.groovy.streaming.CachedImage;
+import com.daw.groovy.streaming.ImageCache;
+import com.daw.groovy.streaming.MediaStreamer;
+
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/api/files")
+@RequiredArgsConstructor
+@Tag(name = "Files", description = "File serving API")
+public class FileController {
+
+    private final StorageService storageService;
+    private final MediaStreamer mediaStreamer;
+    private final ImageCache imageCache;
+    private final ImageVariantService imageVariantService;
+
+    @GetMapping(value = "/{filename}")
+    @Operation(
+        summary = "Get file by filename",
+        description = "Retrieve a file by its filename. Returns the file content directly. For JPEG and PNG images, size selects the smallest stored variant at least that many pixels wide and high (64, 300 or 1000 by default); larger sizes and other files return the original."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "File successfully retrieved",
+            content = @Content(mediaType = "application/octet-stream")
+        ),
+        @ApiResponse(responseCode = "400", description = "Size is not a positive number of pixels"),
+        @ApiResponse(responseCode = "404", description = "File not found"),
+        @ApiResponse(responseCode = "206", description = "Partial content (for range requests)"),
+        @ApiResponse(responseCode = "304", description = "Not modified since the cached copy identified by If-None-Match or If-Modified-Since"),
+        @ApiResponse(responseCode = "416", description = "Requested range not satisfiable")
+    })
+    public void getFile(
+            @Parameter(description = "Filename to retrieve", required = true)
+            @PathVariable String filename,
+            @Parameter(description = "Size in pixels the image will be displayed at", example = "300")
+            @RequestParam(required = false) Integer size,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        if (size != null && size <= 0) {
+            throw new IllegalStateException("Size must be a positive number of pixels");
+        }
+        String variant = size == null ? null : imageVariantService.variantFor(filename, size).orElse(null);
+        MediaType mediaType = mediaStreamer.mediaTypeFor(filename);
+        if (imageCache.handles(mediaType)) {
+            CachedImage image = variant == null
+                    ? imageCache.get(filename, mediaType)
+                    : imageCache.get(filename, variant, mediaType, () -> imageVariantService.loadVariant(filename, variant));
+            if (image != null) {
+                mediaStreamer.stream(image, request, response);
+                return;
+            }
+        }
+        if (variant == null) {
+            mediaStreamer.stream(storageService.loadAsFileResource(filename), mediaType, request, response);
+        } else {
+            // Cached like the original it was derived from
+            Resource resource = imageVariantService.loadVariant(filename, variant);
+            mediaStreamer.stream(resource, mediaType, mediaStreamer.cacheControlFor(filename, mediaType), request, response);
+        }
+    }
+}
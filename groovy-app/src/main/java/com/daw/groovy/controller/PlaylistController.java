@@ -3,14 +3,19 @@ package com.daw.groovy.controller;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import com.daw.groovy.dto.PlaylistDto;
+import com.daw.groovy.service.DownloadService;
 import com.daw.groovy.service.PlaylistService;
+import com.daw.groovy.streaming.ZipStreamer;
 
+import java.io.IOException;
 import java.util.List;
 
 @RestController
@@ -21,6 +26,8 @@ import java.util.List;
 public class PlaylistController {
 
     private final PlaylistService playlistService;
+    private final DownloadService downloadService;
+    private final ZipStreamer zipStreamer;
 
     @GetMapping
     @Operation(summary = "Get all playlists", description = "Get a list of all playlists")
@@ -46,6 +53,13 @@ public class PlaylistController {
         return ResponseEntity.ok(playlistService.searchPlaylistsByName(name));
     }
 
+    @GetMapping("/{id}/download")
+    @Operation(summary = "Download playlist", description = "Stream the playlist's audio files, in playlist order, as a single uncompressed ZIP archive for offline use")
+    public void downloadPlaylist(@PathVariable Long id, HttpServletRequest request,
+                                 HttpServletResponse response) throws IOException {
+        zipStreamer.stream(downloadService.getPlaylistArchive(id), request, response);
+    }
+
     @PostMapping
     @Operation(summary = "Create playlist", description = "Create a new playlist")
     public ResponseEntity<PlaylistDto> createPlaylist(@Valid @RequestBody PlaylistDto playlistDto) {
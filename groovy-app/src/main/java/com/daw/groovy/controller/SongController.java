@@ -9,18 +9,38 @@ import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import com.daw.groovy.dto.SongDto;
+import com.daw.groovy.exception.ResourceNotFoundException;
+import com.daw.groovy.media.HlsPackager;
+import com.daw.groovy.media.Mp3SeekIndex;
+import com.daw.groovy.media.PreviewService;
+import com.daw.groovy.media.SeekIndexService;
+import com.daw.groovy.media.WaveformService;
+import com.daw.groovy.service.PlaybackPrefetcher;
 import com.daw.groovy.service.SongService;
+import com.daw.groovy.streaming.MediaStreamer;
 
+import java.io.IOException;
+import java.net.URI;
 import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
 
 @RestController
 @RequestMapping("/api/songs")
@@ -29,7 +49,19 @@ import java.util.List;
 @SecurityRequirement(name = "bearerAuth")
 public class SongController {
 
+    public static final String SEEK_TIME = "X-Seek-Time";
+    public static final String SEEK_OFFSET = "X-Seek-Offset";
+
+    private static final MediaType HLS_PLAYLIST = MediaType.parseMediaType("application/vnd.apple.mpegurl");
+    private static final MediaType MPEG_AUDIO = MediaType.parseMediaType("audio/mpeg");
+
     private final SongService songService;
+    private final MediaStreamer mediaStreamer;
+    private final SeekIndexService seekIndexService;
+    private final HlsPackager hlsPackager;
+    private final PreviewService previewService;
+    private final WaveformService waveformService;
+    private final PlaybackPrefetcher playbackPrefetcher;
 
     @GetMapping
     @Operation(
@@ -135,7 +167,7 @@ public class SongController {
     @PreAuthorize("hasAnyRole('ADMIN', 'ARTIST')")
     @Operation(
         summary = "Create song", 
-        description = "Upload a new song with metadata and audio file. Only administrators and artists can create songs. The audio file should be in MP3, WAV, or OGG format and not exceed 20MB."
+        description = "Upload a new song with metadata and audio file. Only administrators and artists can create songs. The audio file should be in MP3, WAV, or OGG format and not exceed 20MB. The song is returned as soon as the audio is stored, with ingestStatus PENDING; its duration, track number, genre and content hash are then read from the audio in the background."
     )
     @ApiResponses(value = {
         @ApiResponse(
@@ -260,7 +292,7 @@ public class SongController {
     @GetMapping("/{id}/stream")
     @Operation(
         summary = "Stream song", 
-        description = "Stream a song's audio file by its ID. Returns the binary audio data that can be played in a browser or media player. The response includes appropriate content type headers for audio playback."
+        description = "Stream a song's audio file by its ID. Returns the binary audio data that can be played in a browser or media player. The response includes appropriate content type headers for audio playback and supports byte range requests for seeking. For MP3 audio, pass t to start at the frame playing at that many seconds instead; the response then holds the rest of the file from that frame, and X-Seek-Time and X-Seek-Offset give the exact start time and byte offset. When playback starts (no t, and no Range or a range from byte 0), the start of the next track in the album, or in the playlist given by playlistId, is read ahead on the server and advertised in a Link header with rel=preload."
     )
     @ApiResponses(value = {
         @ApiResponse(
@@ -268,20 +300,199 @@ public class SongController {
             description = "Successfully retrieved the audio file",
             content = @Content(mediaType = "application/octet-stream")
         ),
+        @ApiResponse(responseCode = "206", description = "Partial content (for range requests)"),
+        @ApiResponse(responseCode = "400", description = "Seek time out of range, or the audio is not MP3"),
+        @ApiResponse(responseCode = "416", description = "Requested range not satisfiable"),
         @ApiResponse(responseCode = "401", description = "Unauthorized", ref = "UnauthorizedError"),
         @ApiResponse(responseCode = "404", description = "Song not found", ref = "NotFoundError")
     })
-    public ResponseEntity<byte[]> streamSong(
+    public void streamSong(
             @Parameter(
                 description = "ID of the song to stream - Must be a valid song ID", 
                 required = true, 
                 example = "1"
             )
+            @PathVariable Long id,
+            @Parameter(description = "Playback time in seconds to start streaming at (MP3 only)", example = "92.5")
+            @RequestParam(required = false) Double t,
+            @Parameter(description = "ID of the playlist the song is played from, if not played from its album", example = "1")
+            @RequestParam(required = false) Long playlistId,
+            Authentication authentication,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        SongDto song = songService.getSongById(id);
+        Resource audio = songService.loadSongResource(song.getFilePath());
+        if (t == null && isPlaybackStart(request)) {
+            List<SongDto> next = playbackPrefetcher.nextTracks(song, playlistId);
+            for (SongDto track : next) {
+                String uri = ServletUriComponentsBuilder.fromCurrentContextPath()
+                        .path("/api/songs/{id}/stream")
+                        .queryParamIfPresent("playlistId", Optional.ofNullable(playlistId))
+                        .buildAndExpand(track.getId())
+                        .toUriString();
+                response.addHeader(HttpHeaders.LINK, "<" + uri + ">; rel=preload; as=audio");
+            }
+            playbackPrefetcher.prefetch(authentication.getName(), next);
+        }
+        if (t != null) {
+            Mp3SeekIndex.SeekPoint seekPoint = seekIndexService.seek(song.getFilePath(), t);
+            response.setHeader(SEEK_TIME, String.format(Locale.ROOT, "%.3f", seekPoint.seconds()));
+            response.setHeader(SEEK_OFFSET, String.valueOf(seekPoint.offset()));
+            mediaStreamer.streamFrom(audio, mediaStreamer.mediaTypeFor(song.getFilePath()), seekPoint.offset(), request, response);
+            return;
+        }
+        mediaStreamer.stream(audio, mediaStreamer.mediaTypeFor(song.getFilePath()), request, response);
+    }
+
+    @GetMapping("/{id}/hls/playlist.m3u8")
+    @Operation(
+        summary = "Get the HLS playlist of a song",
+        description = "Returns an HLS (HTTP Live Streaming) playlist for a song's MP3 audio. The audio is split at frame boundaries into segments of a few seconds, served as small cacheable files. The playlist must be revalidated, since it changes when the song's audio is replaced; the segments never change."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Successfully retrieved the playlist",
+            content = @Content(mediaType = "application/vnd.apple.mpegurl")
+        ),
+        @ApiResponse(responseCode = "304", description = "Playlist not modified"),
+        @ApiResponse(responseCode = "400", description = "The song's audio is not MP3"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized", ref = "UnauthorizedError"),
+        @ApiResponse(responseCode = "404", description = "Song or audio not found", ref = "NotFoundError")
+    })
+    public void getHlsPlaylist(
+            @Parameter(description = "ID of the song", required = true, example = "1")
+            @PathVariable Long id,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        String audio = audioFilename(id);
+        mediaStreamer.stream(hlsPackager.getPlaylist(audio), HLS_PLAYLIST, CacheControl.noCache(), request, response);
+    }
+
+    @GetMapping("/{id}/hls/{version}/{segment}")
+    @Operation(
+        summary = "Get an HLS segment of a song",
+        description = "Returns one segment listed in the song's HLS playlist. Segments are immutable and may be cached indefinitely."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Successfully retrieved the segment",
+            content = @Content(mediaType = "audio/mpeg")
+        ),
+        @ApiResponse(responseCode = "401", description = "Unauthorized", ref = "UnauthorizedError"),
+        @ApiResponse(responseCode = "404", description = "Song or segment not found", ref = "NotFoundError")
+    })
+    public void getHlsSegment(
+            @Parameter(description = "ID of the song", required = true, example = "1")
+            @PathVariable Long id,
+            @Parameter(description = "Audio version, as given in the playlist", required = true)
+            @PathVariable String version,
+            @Parameter(description = "Segment name, as given in the playlist", required = true, example = "hls-6000-00000.mp3")
+            @PathVariable String segment,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        String audio = audioFilename(id);
+        Resource resource = hlsPackager.getSegment(audio, version, segment);
+        mediaStreamer.stream(resource, MPEG_AUDIO, mediaStreamer.immutableCacheControl(), request, response);
+    }
+
+    @GetMapping("/{id}/preview")
+    @Operation(
+        summary = "Get the preview clip of a song",
+        description = "Redirects to the song's preview: a short clip cut from its MP3 audio without re-encoding, meant for autoplay on browse pages. The clip URL it redirects to is versioned and may be cached indefinitely."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "302", description = "Redirect to the current preview clip"),
+        @ApiResponse(responseCode = "400", description = "The song's audio is not MP3"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized", ref = "UnauthorizedError"),
+        @ApiResponse(responseCode = "404", description = "Song or audio not found", ref = "NotFoundError")
+    })
+    public ResponseEntity<Void> getPreview(
+            @Parameter(description = "ID of the song", required = true, example = "1")
             @PathVariable Long id) {
+        String version = previewService.getVersion(audioFilename(id));
+        URI location = ServletUriComponentsBuilder.fromCurrentRequest()
+                .path("/{version}.mp3")
+                .buildAndExpand(version)
+                .toUri();
+        return ResponseEntity.status(HttpStatus.FOUND)
+                .location(location)
+                .cacheControl(CacheControl.noCache())
+                .build();
+    }
+
+    @GetMapping("/{id}/preview/{version}.mp3")
+    @Operation(
+        summary = "Stream a preview clip",
+        description = "Streams a version of a song's preview clip, as linked from the preview redirect. The clip never changes and may be cached indefinitely."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Successfully retrieved the preview clip",
+            content = @Content(mediaType = "audio/mpeg")
+        ),
+        @ApiResponse(responseCode = "206", description = "Partial content (for range requests)"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized", ref = "UnauthorizedError"),
+        @ApiResponse(responseCode = "404", description = "Song or preview version not found", ref = "NotFoundError")
+    })
+    public void streamPreview(
+            @Parameter(description = "ID of the song", required = true, example = "1")
+            @PathVariable Long id,
+            @Parameter(description = "Preview version, as given by the preview redirect", required = true)
+            @PathVariable String version,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        Resource preview = previewService.getPreview(audioFilename(id), version);
+        mediaStreamer.stream(preview, MPEG_AUDIO, mediaStreamer.immutableCacheControl(), request, response);
+    }
+
+    @GetMapping("/{id}/waveform")
+    @Operation(
+        summary = "Get the waveform of a song",
+        description = "Returns peak data for drawing a song's waveform: the minimum and maximum sample of a few thousand evenly spaced blocks of its MP3 audio, in the audiowaveform binary format (version 1, 8-bit) read by libraries such as waveform-data.js. Peaks are computed once in the background; while they are not ready yet, 202 is returned with a Retry-After header."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Successfully retrieved the waveform",
+            content = @Content(mediaType = "application/octet-stream")
+        ),
+        @ApiResponse(responseCode = "202", description = "The waveform is being generated; retry later"),
+        @ApiResponse(responseCode = "304", description = "Waveform not modified"),
+        @ApiResponse(responseCode = "400", description = "The song's audio is not MP3"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized", ref = "UnauthorizedError"),
+        @ApiResponse(responseCode = "404", description = "Song or audio not found", ref = "NotFoundError")
+    })
+    public void getWaveform(
+            @Parameter(description = "ID of the song", required = true, example = "1")
+            @PathVariable Long id,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        Resource waveform = waveformService.getWaveform(audioFilename(id)).orElse(null);
+        if (waveform == null) {
+            response.setStatus(HttpStatus.ACCEPTED.value());
+            response.setHeader(HttpHeaders.RETRY_AFTER, "2");
+            response.setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noStore().getHeaderValue());
+            return;
+        }
+        mediaStreamer.stream(waveform, MediaType.APPLICATION_OCTET_STREAM, CacheControl.noCache(), request, response);
+    }
+
+    private String audioFilename(Long id) {
         SongDto song = songService.getSongById(id);
-        byte[] audioData = songService.loadSongFile(song.getFilePath());
-        return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType("audio/mpeg"))
-                .body(audioData);
+        if (song.getFilePath() == null || song.getFilePath().isEmpty()) {
+            throw new ResourceNotFoundException("Song file not found");
+        }
+        return song.getFilePath();
+    }
+
+    /**
+     * @return Whether a stream request starts playing a track, rather than continuing or seeking in it
+     */
+    private static boolean isPlaybackStart(HttpServletRequest request) {
+        String range = request.getHeader(HttpHeaders.RANGE);
+        return range == null || range.replace(" ", "").startsWith("bytes=0-");
     }
 }
@@ -0,0 +1,68 @@
+package com.daw.groovy.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.daw.groovy.dto.StorageMigrationDto;
+import com.daw.groovy.storage.StorageLayoutMigration;
+
+@RestController
+@RequestMapping("/api/admin/storage")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+@Tag(name = "Storage Administration", description = "Maintenance operations on the uploaded file storage")
+@SecurityRequirement(name = "bearerAuth")
+public class StorageAdminController {
+
+    private final StorageLayoutMigration storageLayoutMigration;
+
+    @PostMapping("/migration")
+    @Operation(
+        summary = "Migrate or rebalance stored files",
+        description = "Starts moving stored files in the background to where the current configuration expects them: into the configured directory layout and onto the storage root that owns them, e.g. after switching to storage.layout=sharded or adding a root to storage.roots. Files stay available while they are moved."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "202",
+            description = "Migration started",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = StorageMigrationDto.class))
+        ),
+        @ApiResponse(responseCode = "400", description = "A migration is already running"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized", ref = "#/components/responses/UnauthorizedError"),
+        @ApiResponse(responseCode = "403", description = "Forbidden - Admin access required", ref = "#/components/responses/ForbiddenError")
+    })
+    public ResponseEntity<StorageMigrationDto> startMigration() {
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(storageLayoutMigration.start());
+    }
+
+    @GetMapping("/migration")
+    @Operation(
+        summary = "Get migration progress",
+        description = "Returns the progress of the current or last storage migration."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Successfully retrieved the migration progress",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = StorageMigrationDto.class))
+        ),
+        @ApiResponse(responseCode = "401", description = "Unauthorized", ref = "#/components/responses/UnauthorizedError"),
+        @ApiResponse(responseCode = "403", description = "Forbidden - Admin access required", ref = "#/components/responses/ForbiddenError")
+    })
+    public ResponseEntity<StorageMigrationDto> getMigrationStatus() {
+        return ResponseEntity.ok(storageLayoutMigration.getStatus());
+    }
+}
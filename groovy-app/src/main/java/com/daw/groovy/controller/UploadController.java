@@ -0,0 +1,236 @@
+package com.daw.groovy.controller;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+
+import com.daw.groovy.dto.SongDto;
+import com.daw.groovy.dto.UploadNegotiationRequest;
+import com.daw.groovy.dto.UploadNegotiationResponse;
+import com.daw.groovy.dto.UploadSessionDto;
+import com.daw.groovy.entity.User;
+import com.daw.groovy.service.UploadService;
+
+import java.io.IOException;
+import java.net.URI;
+
+@RestController
+@RequestMapping("/api/uploads")
+@RequiredArgsConstructor
+@PreAuthorize("hasAnyRole('ADMIN', 'ARTIST')")
+@Tag(name = "Uploads", description = "Resumable upload API - Upload large audio files in chunks that survive connection drops")
+@SecurityRequirement(name = "bearerAuth")
+public class UploadController {
+
+    public static final String UPLOAD_OFFSET = "Upload-Offset";
+    public static final String UPLOAD_LENGTH = "Upload-Length";
+
+    private final UploadService uploadService;
+
+    @PostMapping
+    @Operation(
+        summary = "Start a resumable upload",
+        description = "Creates an upload session for a file of the given size. Send its content with PUT requests to the returned location."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "201",
+            description = "Upload session created",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = UploadSessionDto.class))
+        ),
+        @ApiResponse(responseCode = "400", description = "Invalid input", ref = "#/components/responses/ValidationError"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized", ref = "#/components/responses/UnauthorizedError"),
+        @ApiResponse(responseCode = "403", description = "Forbidden - Artist or admin access required", ref = "#/components/responses/ForbiddenError"),
+        @ApiResponse(responseCode = "413", description = "File larger than the maximum upload size")
+    })
+    public ResponseEntity<UploadSessionDto> createUpload(
+            @Valid @RequestBody UploadSessionDto request,
+            Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        UploadSessionDto session = uploadService.createSession(request, user.getId());
+        URI location = ServletUriComponentsBuilder.fromCurrentRequest()
+                .path("/{id}")
+                .buildAndExpand(session.getId())
+                .toUri();
+        return ResponseEntity.created(location)
+                .header(UPLOAD_OFFSET, String.valueOf(session.getOffset()))
+                .body(session);
+    }
+
+    @PostMapping("/negotiate")
+    @Operation(
+        summary = "Negotiate a song's audio upload by content hash",
+        description = "Send the SHA-256 and size of the file before uploading it. If the storage already holds that content, the song is linked to it immediately and nothing needs to be uploaded (200). Otherwise an upload session is created (201): send the file to it and complete it with the song ID."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Content already stored, the song now uses it",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = UploadNegotiationResponse.class))
+        ),
+        @ApiResponse(
+            responseCode = "201",
+            description = "Content not stored, upload session created",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = UploadNegotiationResponse.class))
+        ),
+        @ApiResponse(responseCode = "400", description = "Invalid input", ref = "#/components/responses/ValidationError"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized", ref = "#/components/responses/UnauthorizedError"),
+        @ApiResponse(responseCode = "403", description = "Forbidden - Artist or admin access required", ref = "#/components/responses/ForbiddenError"),
+        @ApiResponse(responseCode = "404", description = "Song not found", ref = "#/components/responses/NotFoundError"),
+        @ApiResponse(responseCode = "413", description = "File larger than the maximum upload size")
+    })
+    public ResponseEntity<UploadNegotiationResponse> negotiateUpload(
+            @Valid @RequestBody UploadNegotiationRequest request,
+            Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        UploadNegotiationResponse response = uploadService.negotiate(request, user.getId());
+        if (response.isLinked()) {
+            return ResponseEntity.ok(response);
+        }
+        URI location = ServletUriComponentsBuilder.fromCurrentContextPath()
+                .path("/api/uploads/{id}")
+                .buildAndExpand(response.getUpload().getId())
+                .toUri();
+        return ResponseEntity.created(location)
+                .header(UPLOAD_OFFSET, String.valueOf(response.getUpload().getOffset()))
+                .body(response);
+    }
+
+    @RequestMapping(value = "/{id}", method = RequestMethod.HEAD)
+    @Operation(
+        summary = "Get the upload offset",
+        description = "Returns how many bytes have been received in the Upload-Offset header, so an interrupted upload can resume from there."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Offset returned in the Upload-Offset header"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized", ref = "#/components/responses/UnauthorizedError"),
+        @ApiResponse(responseCode = "403", description = "Forbidden - Not your upload", ref = "#/components/responses/ForbiddenError"),
+        @ApiResponse(responseCode = "404", description = "Upload not found", ref = "#/components/responses/NotFoundError")
+    })
+    public ResponseEntity<Void> getUploadOffset(
+            @Parameter(description = "ID of the upload", required = true)
+            @PathVariable String id,
+            Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        UploadSessionDto session = uploadService.getSession(id, user.getId());
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .header(UPLOAD_OFFSET, String.valueOf(session.getOffset()))
+                .header(UPLOAD_LENGTH, String.valueOf(session.getSize()))
+                .build();
+    }
+
+    @GetMapping("/{id}")
+    @Operation(
+        summary = "Get an upload session",
+        description = "Retrieves an upload session, including how many bytes have been received."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Successfully retrieved the upload session",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = UploadSessionDto.class))
+        ),
+        @ApiResponse(responseCode = "401", description = "Unauthorized", ref = "#/components/responses/UnauthorizedError"),
+        @ApiResponse(responseCode = "403", description = "Forbidden - Not your upload", ref = "#/components/responses/ForbiddenError"),
+        @ApiResponse(responseCode = "404", description = "Upload not found", ref = "#/components/responses/NotFoundError")
+    })
+    public ResponseEntity<UploadSessionDto> getUpload(
+            @Parameter(description = "ID of the upload", required = true)
+            @PathVariable String id,
+            Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(uploadService.getSession(id, user.getId()));
+    }
+
+    @PutMapping(value = "/{id}", consumes = {"application/offset+octet-stream", MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    @Operation(
+        summary = "Upload a chunk",
+        description = "Appends the request body to the upload. The Upload-Offset header must match the number of bytes received so far; the new offset is returned in the same header. If the connection drops, ask for the offset with HEAD and continue from there."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "204", description = "Chunk stored, new offset in the Upload-Offset header"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized", ref = "#/components/responses/UnauthorizedError"),
+        @ApiResponse(responseCode = "403", description = "Forbidden - Not your upload", ref = "#/components/responses/ForbiddenError"),
+        @ApiResponse(responseCode = "404", description = "Upload not found", ref = "#/components/responses/NotFoundError"),
+        @ApiResponse(responseCode = "409", description = "Offset does not match the bytes received, current offset in the Upload-Offset header"),
+        @ApiResponse(responseCode = "413", description = "Chunk goes past the declared upload size")
+    })
+    public ResponseEntity<Void> uploadChunk(
+            @Parameter(description = "ID of the upload", required = true)
+            @PathVariable String id,
+            @Parameter(description = "Offset this chunk starts at", required = true, example = "0")
+            @RequestHeader(UPLOAD_OFFSET) long offset,
+            HttpServletRequest request,
+            Authentication authentication) throws IOException {
+        User user = (User) authentication.getPrincipal();
+        UploadSessionDto session = uploadService.appendChunk(id, user.getId(), offset, request.getInputStream());
+        return ResponseEntity.noContent()
+                .header(UPLOAD_OFFSET, String.valueOf(session.getOffset()))
+                .build();
+    }
+
+    @PostMapping("/{id}/complete")
+    @Operation(
+        summary = "Complete an upload as a song's audio",
+        description = "Finishes a fully received upload and makes it the audio file of the given song, replacing any previous one. The file is moved into place, not copied."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(
+            responseCode = "200",
+            description = "Successfully attached the audio to the song",
+            content = @Content(mediaType = "application/json", schema = @Schema(implementation = SongDto.class))
+        ),
+        @ApiResponse(responseCode = "401", description = "Unauthorized", ref = "#/components/responses/UnauthorizedError"),
+        @ApiResponse(responseCode = "403", description = "Forbidden - Not your upload", ref = "#/components/responses/ForbiddenError"),
+        @ApiResponse(responseCode = "404", description = "Upload or song not found", ref = "#/components/responses/NotFoundError"),
+        @ApiResponse(responseCode = "409", description = "Upload is not complete yet")
+    })
+    public ResponseEntity<SongDto> completeUpload(
+            @Parameter(description = "ID of the upload", required = true)
+            @PathVariable String id,
+            @Parameter(description = "ID of the song to attach the audio to", required = true, example = "1")
+            @RequestParam Long songId,
+            Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        return ResponseEntity.ok(uploadService.completeToSong(id, user.getId(), songId));
+    }
+
+    @DeleteMapping("/{id}")
+    @Operation(
+        summary = "Cancel an upload",
+        description = "Discards an upload session and the bytes received so far."
+    )
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "204", description = "Upload cancelled"),
+        @ApiResponse(responseCode = "401", description = "Unauthorized", ref = "#/components/responses/UnauthorizedError"),
+        @ApiResponse(responseCode = "403", description = "Forbidden - Not your upload", ref = "#/components/responses/ForbiddenError"),
+        @ApiResponse(responseCode = "404", description = "Upload not found", ref = "#/components/responses/NotFoundError")
+    })
+    public ResponseEntity<Void> cancelUpload(
+            @Parameter(description = "ID of the upload", required = true)
+            @PathVariable String id,
+            Authentication authentication) {
+        User user = (User) authentication.getPrincipal();
+        uploadService.cancel(id, user.getId());
+        return ResponseEntity.status(HttpStatus.NO_CONTENT).build();
+    }
+}
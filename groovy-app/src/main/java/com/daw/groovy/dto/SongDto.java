@@ -12,6 +12,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import com.daw.groovy.enums.IngestStatus;
+
 @Data
 @Builder
 @NoArgsConstructor
@@ -41,8 +43,8 @@ public class SongDto {
     
     @Positive(message = "Duration must be positive")
     @Schema(
-        description = "Song duration in minutes - How long the track plays", 
-        example = "4.53", 
+        description = "Song duration in seconds - How long the track plays. Replaced by the duration measured from the audio once it has been ingested", 
+        example = "293", 
         required = false,
         title = "Duration"
     )
@@ -83,4 +85,40 @@ public class SongDto {
     )
     @JsonProperty(access = JsonProperty.Access.READ_ONLY)
     private String artistName;
+    
+    @Schema(
+        description = "Audio ingest status (read-only) - PENDING and PROCESSING while the duration, tags and hash are read from the uploaded audio, then READY or FAILED; absent for songs without audio", 
+        accessMode = Schema.AccessMode.READ_ONLY,
+        example = "READY",
+        title = "Ingest status"
+    )
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private IngestStatus ingestStatus;
+    
+    @Schema(
+        description = "SHA-256 of the audio (read-only, populated by ingest) - Can be passed to upload negotiation to reuse the audio", 
+        accessMode = Schema.AccessMode.READ_ONLY,
+        example = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08",
+        title = "Content hash"
+    )
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private String contentHash;
+    
+    @Schema(
+        description = "Track number (read-only, populated by ingest) - From the audio's ID3 tag", 
+        accessMode = Schema.AccessMode.READ_ONLY,
+        example = "2",
+        title = "Track number"
+    )
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Integer trackNumber;
+    
+    @Schema(
+        description = "Genre (read-only, populated by ingest) - From the audio's ID3 tag", 
+        accessMode = Schema.AccessMode.READ_ONLY,
+        example = "Hip-Hop",
+        title = "Genre"
+    )
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private String genre;
 }
@@ -0,0 +1,37 @@
+package com.daw.groovy.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import com.daw.groovy.enums.MigrationState;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Progress of moving stored files to their configured layout and storage root")
+public class StorageMigrationDto {
+
+    @Schema(description = "Current state of the migration", example = "RUNNING")
+    private MigrationState state;
+
+    @Schema(description = "Files moved to their canonical location so far", example = "1520")
+    private long moved;
+
+    @Schema(description = "Stale copies dropped because a newer file already existed at the canonical location", example = "3")
+    private long skipped;
+
+    @Schema(description = "Files that could not be moved and were left in place", example = "0")
+    private long failed;
+
+    @Schema(description = "When the migration was started", example = "2025-03-13T22:10:53")
+    private LocalDateTime startedAt;
+
+    @Schema(description = "When the migration finished, if it has", example = "2025-03-13T22:14:02")
+    private LocalDateTime finishedAt;
+}
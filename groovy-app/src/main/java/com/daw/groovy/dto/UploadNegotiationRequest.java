@@ -0,0 +1,43 @@
+package com.daw.groovy.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Hash-first upload request - Describes a song's audio file before any of it is sent")
+public class UploadNegotiationRequest {
+
+    @NotNull(message = "Song ID is required")
+    @Schema(description = "ID of the song the audio belongs to", example = "1", required = true)
+    private Long songId;
+
+    @NotBlank(message = "Content hash is required")
+    @Pattern(regexp = "^[0-9a-f]{64}$", message = "Content hash must be a lowercase hex SHA-256")
+    @Schema(
+        description = "SHA-256 of the file content, lowercase hex",
+        example = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08",
+        required = true
+    )
+    private String sha256;
+
+    @NotNull(message = "Size is required")
+    @Positive(message = "Size must be positive")
+    @Schema(description = "Size of the file in bytes", example = "31457280", required = true)
+    private Long size;
+
+    @NotBlank(message = "Filename is required")
+    @Size(max = 255, message = "Filename must be at most 255 characters")
+    @Schema(description = "Name of the file, used if it has to be uploaded", example = "billie-jean.flac", required = true)
+    private String filename;
+}
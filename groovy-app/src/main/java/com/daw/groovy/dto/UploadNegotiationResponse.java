@@ -0,0 +1,24 @@
+package com.daw.groovy.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Hash-first upload response - Either the song, already linked to stored content, or where to upload the file")
+public class UploadNegotiationResponse {
+
+    @Schema(description = "Whether the content was already stored and the song now uses it", example = "true", required = true)
+    private boolean linked;
+
+    @Schema(description = "The updated song, when the content was linked")
+    private SongDto song;
+
+    @Schema(description = "Upload session to send the file to, when the content is not stored yet")
+    private UploadSessionDto upload;
+}
@@ -0,0 +1,58 @@
+package com.daw.groovy.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Resumable upload session - Tracks a large file uploaded in chunks")
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class UploadSessionDto {
+
+    @Schema(
+        description = "Upload ID - generated when the session is created",
+        accessMode = Schema.AccessMode.READ_ONLY,
+        example = "0b6f3c1e-4f7a-4c52-9a43-2f1d5b8e9c10"
+    )
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private String id;
+
+    @NotBlank(message = "Filename is required")
+    @Size(max = 255, message = "Filename must be at most 255 characters")
+    @Schema(description = "Name of the file being uploaded", example = "billie-jean.flac", required = true)
+    private String filename;
+
+    @NotNull(message = "Size is required")
+    @Positive(message = "Size must be positive")
+    @Schema(description = "Total size of the file in bytes", example = "31457280", required = true)
+    private Long size;
+
+    @Schema(
+        description = "Number of bytes received so far - the offset to send the next chunk from",
+        accessMode = Schema.AccessMode.READ_ONLY,
+        example = "8388608"
+    )
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long offset;
+
+    @Schema(
+        description = "When the session and its received bytes are discarded unless more data arrives",
+        accessMode = Schema.AccessMode.READ_ONLY,
+        example = "2025-03-14T22:10:53"
+    )
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private LocalDateTime expiresAt;
+}
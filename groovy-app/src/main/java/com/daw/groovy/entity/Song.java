@@ -6,6 +6,8 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import com.daw.groovy.enums.IngestStatus;
+
 import java.util.ArrayList;
 import java.util.List;
 
@@ -28,6 +30,18 @@ public class Song {
 
     private String filePath;
 
+    @Enumerated(EnumType.STRING)
+    @Column(name = "ingest_status")
+    private IngestStatus ingestStatus;
+
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    @Column(name = "track_number")
+    private Integer trackNumber;
+
+    private String genre;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "artist_id")
     private Artist artist;
@@ -0,0 +1,41 @@
+package com.daw.groovy.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A content-addressed file in storage and the number of song files, album covers
+ * and profile pictures that currently point at it
+ */
+@Entity
+@Table(name = "stored_files", indexes = {
+    @Index(name = "idx_stored_files_content_hash", columnList = "content_hash")
+})
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class StoredFile {
+
+    @Id
+    @Column(name = "filename", nullable = false, updatable = false)
+    private String filename;
+
+    @Column(name = "content_hash", nullable = false, length = 64)
+    private String contentHash;
+
+    @Column(nullable = false)
+    private Long size;
+
+    @Column(name = "ref_count", nullable = false)
+    private int refCount;
+
+    @Column(name = "created_at")
+    @Builder.Default
+    private LocalDateTime createdAt = LocalDateTime.now();
+}
@@ -0,0 +1,12 @@
+package com.daw.groovy.enums;
+
+/**
+ * Progress of the background processing that reads a song's duration, tags and
+ * content hash from its audio
+ */
+public enum IngestStatus {
+    PENDING,
+    PROCESSING,
+    READY,
+    FAILED
+}
@@ -0,0 +1,8 @@
+package com.daw.groovy.enums;
+
+public enum MigrationState {
+    IDLE,
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
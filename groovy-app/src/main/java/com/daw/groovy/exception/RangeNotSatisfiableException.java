@@ -0,0 +1,19 @@
+package com.daw.groovy.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+public class RangeNotSatisfiableException extends RuntimeException {
+
+    private final long completeLength;
+
+    public RangeNotSatisfiableException(String message, long completeLength) {
+        super(message);
+        this.completeLength = completeLength;
+    }
+
+    public long getCompleteLength() {
+        return completeLength;
+    }
+}
@@ -28,6 +28,10 @@ public abstract class SongMapper {
     @Mapping(target = "id", ignore = true)
     @Mapping(target = "album", ignore = true)
     @Mapping(target = "playlists", ignore = true)
+    @Mapping(target = "ingestStatus", ignore = true)
+    @Mapping(target = "contentHash", ignore = true)
+    @Mapping(target = "trackNumber", ignore = true)
+    @Mapping(target = "genre", ignore = true)
     public abstract Song toEntity(SongDto songDto);
     
     @AfterMapping
@@ -41,5 +45,10 @@ public abstract class SongMapper {
     @Mapping(target = "id", ignore = true)
     @Mapping(target = "album", ignore = true)
     @Mapping(target = "playlists", ignore = true)
+    @Mapping(target = "ingestStatus", ignore = true)
+    @Mapping(target = "contentHash", ignore = true)
+    @Mapping(target = "trackNumber", ignore = true)
+    @Mapping(target = "genre", ignore = true)
+    @Mapping(target = "filePath", ignore = true)
     public abstract void updateEntityFromDto(SongDto songDto, @MappingTarget Song song);
 }
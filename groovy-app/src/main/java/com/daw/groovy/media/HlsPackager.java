@@ -0,0 +1,193 @@
+package com.daw.groovy.media;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.daw.groovy.exception.StorageException;
+import com.daw.groovy.exception.StorageFileNotFoundException;
+import com.daw.groovy.service.SongAudioChangedEvent;
+import com.daw.groovy.storage.SingleFlight;
+import com.daw.groovy.storage.StorageService;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Packages stored MP3s for HTTP Live Streaming: the audio is cut at frame boundaries into
+ * segments of a fixed duration and listed in a VOD playlist, all stored next to the audio.
+ *
+ * Segments are small files whose URLs include a version derived from the stored audio
+ * and the segment duration, so they can be cached for good by browsers and CDNs; only
+ * the playlist has to be revalidated when a song's audio is replaced. The names of the
+ * playlist and segments include the segment duration too, so changing it packages songs
+ * again under new URLs instead of rewriting segments that may be cached. Each segment is an MPEG audio elementary
+ * stream starting with the ID3 timestamp that packed audio requires (RFC 8216 section 3.4).
+ *
+ * Packaging runs in the background once new audio is committed, and on first request for
+ * audio stored before; concurrent requests share one packaging run.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class HlsPackager {
+
+    private static final Pattern SEGMENT_NAME = Pattern.compile("hls-\\d+-\\d{5}\\.mp3");
+
+    private static final String TIMESTAMP_OWNER = "com.apple.streaming.transportStreamTimestamp";
+
+    // MPEG-2 transport stream timestamps count a 90 kHz clock in 33 bits
+    private static final long TIMESTAMP_CLOCK = 90_000;
+    private static final long TIMESTAMP_MASK = 0x1FFFFFFFFL;
+
+    private final StorageService storageService;
+    private final SeekIndexService seekIndexService;
+    private final SingleFlight<String, Integer> packagings = new SingleFlight<>();
+
+    @Value("${hls.segment-duration:6s}")
+    private Duration segmentDuration;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSongAudioChanged(SongAudioChangedEvent event) {
+        if (!isPackageable(event.filename())) {
+            return;
+        }
+        Thread.ofVirtual().name("hls-packager").start(() -> {
+            try {
+                packageAudio(event.filename());
+            } catch (RuntimeException e) {
+                log.warn("Could not package {} for song {}", event.filename(), event.songId(), e);
+            }
+        });
+    }
+
+    /**
+     * @param filename The stored MP3
+     * @return Its playlist, packaged now if it has none yet
+     * @throws IllegalStateException if the audio is not MP3
+     */
+    public Resource getPlaylist(String filename) {
+        if (!isPackageable(filename)) {
+            throw new IllegalStateException("HLS streaming is only supported for MP3 audio");
+        }
+        try {
+            return storageService.loadDerived(filename, playlistName());
+        } catch (StorageFileNotFoundException e) {
+            log.debug("No HLS playlist for {} yet", filename);
+        }
+        packageAudio(filename);
+        return storageService.loadDerived(filename, playlistName());
+    }
+
+    /**
+     * @param filename The stored MP3
+     * @param version The version from the segment URL
+     * @param segment The segment name from the playlist
+     * @return The segment
+     * @throws StorageFileNotFoundException if there is no such segment for the current audio
+     */
+    public Resource getSegment(String filename, String version, String segment) {
+        if (!version.equals(version(filename)) || !SEGMENT_NAME.matcher(segment).matches()
+                || !segment.startsWith(segmentPrefix())) {
+            throw new StorageFileNotFoundException("No HLS segment " + version + "/" + segment);
+        }
+        return storageService.loadDerived(filename, segment);
+    }
+
+    private void packageAudio(String filename) {
+        packagings.run(filename, () -> cut(filename));
+    }
+
+    /**
+     * @return The number of segments
+     */
+    private int cut(String filename) {
+        Mp3SeekIndex index = seekIndexService.getIndex(filename)
+                .orElseThrow(() -> new IllegalStateException("No MPEG audio frames found in " + filename));
+        int framesPerSegment = Math.max(1,
+                (int) Math.round(segmentDuration.toNanos() / 1e9 / index.getFrameDuration()));
+        String version = version(filename);
+
+        StringBuilder segments = new StringBuilder();
+        double targetDuration = 0;
+        int segmentCount = 0;
+        try (InputStream audio = storageService.loadAsFileResource(filename).getInputStream()) {
+            audio.skipNBytes(index.getFrameOffset(0));
+            for (int first = 0; first < index.getFrameCount(); first += framesPerSegment) {
+                int next = Math.min(first + framesPerSegment, index.getFrameCount());
+                long end = next < index.getFrameCount() ? index.getFrameOffset(next) : index.getEndOffset();
+                byte[] frames = audio.readNBytes((int) (end - index.getFrameOffset(first)));
+
+                double start = first * index.getFrameDuration();
+                byte[] timestamp = timestampTag(Math.round(start * TIMESTAMP_CLOCK));
+                byte[] segment = ByteBuffer.allocate(timestamp.length + frames.length).put(timestamp).put(frames).array();
+                String name = String.format(Locale.ROOT, "%s%05d.mp3", segmentPrefix(), segmentCount++);
+                storageService.storeDerived(filename, name, new ByteArrayInputStream(segment));
+
+                double duration = (next - first) * index.getFrameDuration();
+                targetDuration = Math.max(targetDuration, duration);
+                segments.append(String.format(Locale.ROOT, "#EXTINF:%.3f,\n", duration))
+                        .append(version).append('/').append(name).append('\n');
+            }
+        } catch (IOException e) {
+            throw new StorageException("Failed to package " + filename, e);
+        }
+
+        // Written last: a playlist only ever lists segments that are already stored
+        String playlist = "#EXTM3U\n"
+                + "#EXT-X-VERSION:3\n"
+                + "#EXT-X-PLAYLIST-TYPE:VOD\n"
+                + "#EXT-X-TARGETDURATION:" + (int) Math.ceil(targetDuration) + "\n"
+                + "#EXT-X-MEDIA-SEQUENCE:0\n"
+                + segments
+                + "#EXT-X-ENDLIST\n";
+        storageService.storeDerived(filename, playlistName(),
+                new ByteArrayInputStream(playlist.getBytes(StandardCharsets.UTF_8)));
+        log.debug("Packaged {} into {} HLS segments", filename, segmentCount);
+        return segmentCount;
+    }
+
+    private String version(String filename) {
+        return MediaVersions.of(filename, playlistName());
+    }
+
+    private String playlistName() {
+        return "hls-" + segmentDuration.toMillis() + ".m3u8";
+    }
+
+    private String segmentPrefix() {
+        return "hls-" + segmentDuration.toMillis() + "-";
+    }
+
+    /**
+     * An ID3v2.4 tag with the PRIV frame that tells players the presentation time of the
+     * first sample in a packed audio segment
+     */
+    private static byte[] timestampTag(long timestamp) {
+        byte[] owner = (TIMESTAMP_OWNER + '\0').getBytes(StandardCharsets.US_ASCII);
+        int frameSize = owner.length + Long.BYTES;
+        ByteBuffer tag = ByteBuffer.allocate(10 + 10 + frameSize);
+        tag.put("ID3".getBytes(StandardCharsets.US_ASCII)).put((byte) 4).put((byte) 0).put((byte) 0)
+                .putInt(syncsafe(10 + frameSize));
+        tag.put("PRIV".getBytes(StandardCharsets.US_ASCII)).putInt(syncsafe(frameSize)).putShort((short) 0);
+        tag.put(owner).putLong(timestamp & TIMESTAMP_MASK);
+        return tag.array();
+    }
+
+    private static int syncsafe(int value) {
+        return ((value & 0x0FE00000) << 3) | ((value & 0x001FC000) << 2) | ((value & 0x00003F80) << 1) | (value & 0x7F);
+    }
+
+    private boolean isPackageable(String filename) {
+        return filename != null && filename.toLowerCase(Locale.ROOT).endsWith(".mp3");
+    }
+}
@@ -0,0 +1,194 @@
+package com.daw.groovy.media;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The text frames of the ID3v2 tag at the start of an MP3 (versions 2.2 to 2.4).
+ *
+ * Only the tag is read from the stream; non-text frames such as cover art are skipped
+ * without being buffered. Frames that are compressed, encrypted or unsynchronised are
+ * ignored rather than decoded, as are tags unsynchronised as a whole: rare in practice,
+ * and nothing here is worth the extra code.
+ */
+public final class Id3Tag {
+
+    private static final Id3Tag EMPTY = new Id3Tag(Map.of());
+
+    // Text frames are short; anything larger is not worth keeping in memory
+    private static final int MAX_TEXT_FRAME = 4096;
+
+    // ID3v2.2 uses three-character frame IDs
+    private static final Map<String, String> V22_FRAME_IDS = Map.of(
+            "TT2", "TIT2", "TP1", "TPE1", "TAL", "TALB", "TRK", "TRCK", "TCO", "TCON", "TYE", "TYER");
+
+    private static final Pattern TRACK_NUMBER = Pattern.compile("^\\s*(\\d+)");
+    private static final Pattern GENRE_REFERENCES = Pattern.compile("^(?:\\((\\d+|RX|CR)\\))+");
+
+    // The genres numbered by ID3v1, which later versions still refer to
+    private static final List<String> GENRES = List.of(
+            "Blues", "Classic Rock", "Country", "Dance", "Disco", "Funk", "Grunge", "Hip-Hop", "Jazz", "Metal",
+            "New Age", "Oldies", "Other", "Pop", "R&B", "Rap", "Reggae", "Rock", "Techno", "Industrial",
+            "Alternative", "Ska", "Death Metal", "Pranks", "Soundtrack", "Euro-Techno", "Ambient", "Trip-Hop",
+            "Vocal", "Jazz+Funk", "Fusion", "Trance", "Classical", "Instrumental", "Acid", "House", "Game",
+            "Sound Clip", "Gospel", "Noise", "AlternRock", "Bass", "Soul", "Punk", "Space", "Meditative",
+            "Instrumental Pop", "Instrumental Rock", "Ethnic", "Gothic", "Darkwave", "Techno-Industrial",
+            "Electronic", "Pop-Folk", "Eurodance", "Dream", "Southern Rock", "Comedy", "Cult", "Gangsta", "Top 40",
+            "Christian Rap", "Pop/Funk", "Jungle", "Native American", "Cabaret", "New Wave", "Psychadelic", "Rave",
+            "Showtunes", "Trailer", "Lo-Fi", "Tribal", "Acid Punk", "Acid Jazz", "Polka", "Retro", "Musical",
+            "Rock & Roll", "Hard Rock");
+
+    private final Map<String, String> frames;
+
+    private Id3Tag(Map<String, String> frames) {
+        this.frames = frames;
+    }
+
+    /**
+     * Read the tag at the current position of a stream
+     *
+     * @param in The stream, positioned at the start of the file
+     * @return The tag, empty if there is none; the stream is left after the tag
+     */
+    public static Id3Tag read(InputStream in) throws IOException {
+        byte[] header = in.readNBytes(10);
+        if (header.length < 10 || header[0] != 'I' || header[1] != 'D' || header[2] != '3') {
+            return EMPTY;
+        }
+        int version = header[3];
+        int flags = header[5] & 0xFF;
+        long remaining = syncsafe(header, 6);
+        if (version < 2 || version > 4 || (flags & 0x80) != 0) {
+            in.skipNBytes(remaining);
+            return EMPTY;
+        }
+
+        if (version > 2 && (flags & 0x40) != 0) {
+            // Extended header: v2.3 gives its size without the size field, v2.4 with it
+            byte[] size = in.readNBytes(4);
+            long extended = version == 3 ? toInt(size, 0, 4) : syncsafe(size, 0) - 4;
+            remaining -= 4 + extended;
+            in.skipNBytes(Math.max(0, Math.min(extended, remaining)));
+        }
+
+        Map<String, String> frames = new HashMap<>();
+        int frameHeaderLength = version == 2 ? 6 : 10;
+        while (remaining >= frameHeaderLength) {
+            byte[] frameHeader = in.readNBytes(frameHeaderLength);
+            remaining -= frameHeader.length;
+            if (frameHeader.length < frameHeaderLength || frameHeader[0] == 0) {
+                // Padding: no more frames
+                break;
+            }
+            String id = new String(frameHeader, 0, version == 2 ? 3 : 4, StandardCharsets.ISO_8859_1);
+            long size = switch (version) {
+                case 2 -> toInt(frameHeader, 3, 3);
+                case 3 -> toInt(frameHeader, 4, 4);
+                default -> syncsafe(frameHeader, 4);
+            };
+            boolean encoded = version > 2 && frameHeader[9] != 0;
+            if (size > remaining) {
+                break;
+            }
+            remaining -= size;
+
+            String key = version == 2 ? V22_FRAME_IDS.get(id) : id;
+            if (key != null && key.startsWith("T") && !encoded && size <= MAX_TEXT_FRAME) {
+                String text = decodeText(in.readNBytes((int) size));
+                if (!text.isEmpty()) {
+                    frames.putIfAbsent(key, text);
+                }
+            } else {
+                in.skipNBytes(size);
+            }
+        }
+        in.skipNBytes(Math.max(0, remaining));
+        return new Id3Tag(frames);
+    }
+
+    /**
+     * @param frameId An ID3v2.3 text frame ID, such as TIT2 for the title
+     * @return The first value of the frame
+     */
+    public Optional<String> get(String frameId) {
+        return Optional.ofNullable(frames.get(frameId));
+    }
+
+    /**
+     * @return The track number, without the track count some taggers append
+     */
+    public Optional<Integer> getTrackNumber() {
+        return get("TRCK")
+                .map(TRACK_NUMBER::matcher)
+                .filter(Matcher::find)
+                .map(m -> m.group(1).length() <= 4 ? Integer.parseInt(m.group(1)) : null);
+    }
+
+    /**
+     * @return The genre, with ID3v1 genre numbers resolved to names
+     */
+    public Optional<String> getGenre() {
+        return get("TCON").map(Id3Tag::resolveGenre).filter(genre -> !genre.isEmpty());
+    }
+
+    private static String resolveGenre(String value) {
+        Matcher references = GENRE_REFERENCES.matcher(value);
+        if (references.find()) {
+            // "(17)Rock" refines the reference with text; "(17)" alone only has the number
+            String refinement = value.substring(references.end()).trim();
+            return refinement.isEmpty() ? genreName(references.group(1)) : refinement;
+        }
+        return genreName(value);
+    }
+
+    private static String genreName(String value) {
+        return switch (value) {
+            case "RX" -> "Remix";
+            case "CR" -> "Cover";
+            default -> {
+                if (!value.matches("\\d{1,3}")) {
+                    yield value;
+                }
+                int number = Integer.parseInt(value);
+                yield number < GENRES.size() ? GENRES.get(number) : "";
+            }
+        };
+    }
+
+    private static String decodeText(byte[] frame) {
+        if (frame.length < 2) {
+            return "";
+        }
+        Charset charset = switch (frame[0]) {
+            case 1 -> StandardCharsets.UTF_16;
+            case 2 -> StandardCharsets.UTF_16BE;
+            case 3 -> StandardCharsets.UTF_8;
+            default -> StandardCharsets.ISO_8859_1;
+        };
+        String text = new String(frame, 1, frame.length - 1, charset);
+        // Several values are separated by a null, and many taggers add a trailing one
+        int end = text.indexOf('\0');
+        return (end >= 0 ? text.substring(0, end) : text).trim();
+    }
+
+    private static long syncsafe(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0x7F) << 21) | ((bytes[offset + 1] & 0x7F) << 14)
+                | ((bytes[offset + 2] & 0x7F) << 7) | (bytes[offset + 3] & 0x7F);
+    }
+
+    private static long toInt(byte[] bytes, int offset, int length) {
+        long value = 0;
+        for (int i = offset; i < offset + length; i++) {
+            value = (value << 8) | (bytes[i] & 0xFF);
+        }
+        return value;
+    }
+}
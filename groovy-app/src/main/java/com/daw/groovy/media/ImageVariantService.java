@@ -0,0 +1,248 @@
+package com.daw.groovy.media;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+
+import com.daw.groovy.exception.StorageException;
+import com.daw.groovy.exception.StorageFileNotFoundException;
+import com.daw.groovy.storage.StorageFileChangedEvent;
+import com.daw.groovy.storage.StorageService;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Keeps downscaled copies of stored cover and profile images at a fixed set of sizes,
+ * so thumbnail grids do not download multi-megabyte originals.
+ *
+ * Variants are stored next to the image, keep its format and fit within a square of
+ * their size. They are written progressive, so large ones render early at low detail.
+ * Images no larger than a variant are copied as they are rather than re-encoded. New
+ * images get their variants in the background once stored; images stored before get
+ * each variant on first request.
+ *
+ * Images are only decoded at about twice the size of the variant, by skipping source
+ * pixels, so a small file that decompresses into a huge image cannot exhaust the heap.
+ * Images with more pixels than images.max-pixels are not resized at all.
+ */
+@Service
+@Slf4j
+public class ImageVariantService {
+
+    private final StorageService storageService;
+    private final int[] sizes;
+    private final float jpegQuality;
+    private final long maxPixels;
+
+    public ImageVariantService(StorageService storageService,
+                               @Value("${images.variant-sizes:64,300,1000}") int[] sizes,
+                               @Value("${images.jpeg-quality:0.85}") float jpegQuality,
+                               @Value("${images.max-pixels:100000000}") long maxPixels) {
+        this.storageService = storageService;
+        this.sizes = Arrays.stream(sizes).filter(size -> size > 0).sorted().distinct().toArray();
+        this.jpegQuality = jpegQuality;
+        this.maxPixels = maxPixels;
+    }
+
+    @EventListener
+    public void onStorageFileChanged(StorageFileChangedEvent event) {
+        if (format(event.filename()) == null) {
+            return;
+        }
+        Thread.ofVirtual().name("image-variants").start(() -> {
+            try {
+                for (int size : sizes) {
+                    if (!exists(event.filename(), size)) {
+                        generate(event.filename(), size);
+                    }
+                }
+            } catch (StorageFileNotFoundException e) {
+                log.debug("{} was deleted, no variants to generate", event.filename());
+            } catch (RuntimeException e) {
+                log.warn("Could not generate variants of {}", event.filename(), e);
+            }
+        });
+    }
+
+    /**
+     * Pick the variant to serve for a requested size
+     *
+     * @param filename The stored image
+     * @param size The size the client will display the image at, in pixels
+     * @return The name of the smallest variant at least that large; empty if the original
+     *         should be served, because the file is not a resizable image or no variant is large enough
+     */
+    public Optional<String> variantFor(String filename, int size) {
+        String format = format(filename);
+        if (format == null) {
+            return Optional.empty();
+        }
+        return Arrays.stream(sizes)
+                .filter(variant -> variant >= size)
+                .mapToObj(variant -> variantName(variant, format))
+                .findFirst();
+    }
+
+    /**
+     * @param filename The stored image
+     * @param variant A variant name from {@link #variantFor}
+     * @return The variant, generated now if it has not been yet; the original if the
+     *         image cannot be decoded
+     */
+    public Resource loadVariant(String filename, String variant) {
+        int size = Integer.parseInt(variant.substring(1, variant.indexOf('.')));
+        try {
+            return storageService.loadDerived(filename, variant);
+        } catch (StorageFileNotFoundException e) {
+            log.debug("No {} variant of {} yet", variant, filename);
+        }
+        try {
+            generate(filename, size);
+            return storageService.loadDerived(filename, variant);
+        } catch (IllegalStateException e) {
+            log.warn("Serving the original of {}: {}", filename, e.getMessage());
+            return storageService.loadAsFileResource(filename);
+        }
+    }
+
+    private boolean exists(String filename, int size) {
+        try {
+            storageService.loadDerived(filename, variantName(size, format(filename)));
+            return true;
+        } catch (StorageFileNotFoundException e) {
+            return false;
+        }
+    }
+
+    private void generate(String filename, int size) {
+        String format = format(filename);
+        byte[] original;
+        try (InputStream in = storageService.loadAsFileResource(filename).getInputStream()) {
+            original = in.readAllBytes();
+        } catch (IOException e) {
+            throw new StorageException("Failed to read " + filename + " for resizing", e);
+        }
+
+        byte[] variant;
+        try (ImageInputStream in = ImageIO.createImageInputStream(new ByteArrayInputStream(original))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+            if (!readers.hasNext()) {
+                throw new IllegalStateException(filename + " is not a readable image");
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, true, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                if ((long) width * height > maxPixels) {
+                    throw new IllegalStateException(filename + " is too large to resize (" + width + "x" + height + ")");
+                }
+                variant = Math.max(width, height) <= size
+                        ? original
+                        : encode(scale(decode(reader, width, height, size), size, "png".equals(format)), format);
+            } finally {
+                reader.dispose();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not resize " + filename, e);
+        }
+        storageService.storeDerived(filename, variantName(size, format), new ByteArrayInputStream(variant));
+        log.debug("Stored the {}px variant of {} ({} bytes, from {})", size, filename, variant.length, original.length);
+    }
+
+    /**
+     * Decode an image at no less than twice the size of the variant, skipping source
+     * pixels beyond that; the final downscale still filters from twice the target size
+     */
+    private static BufferedImage decode(ImageReader reader, int width, int height, int size) throws IOException {
+        ImageReadParam param = reader.getDefaultReadParam();
+        int subsampling = Math.max(1, Math.max(width, height) / (size * 2));
+        param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+        return reader.read(0, param);
+    }
+
+    /**
+     * Downscale in steps of at most half, so bilinear filtering takes every source pixel
+     * into account instead of skipping most of them
+     */
+    private static BufferedImage scale(BufferedImage image, int size, boolean alpha) {
+        double ratio = (double) size / Math.max(image.getWidth(), image.getHeight());
+        int targetWidth = Math.max(1, (int) Math.round(image.getWidth() * ratio));
+        int targetHeight = Math.max(1, (int) Math.round(image.getHeight() * ratio));
+        int type = alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+
+        BufferedImage current = image;
+        int width = image.getWidth();
+        int height = image.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage step = new BufferedImage(width, height, type);
+            Graphics2D graphics = step.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = step;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private byte[] encode(BufferedImage image, String format) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        if (param.canWriteProgressive()) {
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+        }
+        if ("jpeg".equals(format)) {
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(jpegQuality);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(bytes)) {
+            writer.setOutput(out);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return bytes.toByteArray();
+    }
+
+    private static String variantName(int size, String format) {
+        return "w" + size + ("png".equals(format) ? ".png" : ".jpg");
+    }
+
+    /**
+     * @return The image format variants are written in, or null if the file is not resized
+     */
+    private static String format(String filename) {
+        String name = filename.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".jpg") || name.endsWith(".jpeg")) {
+            return "jpeg";
+        }
+        return name.endsWith(".png") ? "png" : null;
+    }
+}
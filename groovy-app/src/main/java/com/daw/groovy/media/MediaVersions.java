@@ -0,0 +1,31 @@
+package com.daw.groovy.media;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Version tokens for URLs of content derived from stored audio. The token changes
+ * whenever any of its inputs do, so the content behind a versioned URL never changes and
+ * can be cached for good.
+ */
+final class MediaVersions {
+
+    private MediaVersions() {
+    }
+
+    /**
+     * @param parts What the content depends on, starting with the stored filename
+     * @return 16 hex digits of the SHA-256 of the parts
+     */
+    static String of(String... parts) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(String.join("\n", parts).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
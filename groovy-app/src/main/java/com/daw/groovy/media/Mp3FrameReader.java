@@ -0,0 +1,243 @@
+package com.daw.groovy.media;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Walks the frames of an MPEG audio stream (MP3 and its layer I/II siblings) without
+ * decoding them, recording where each frame starts.
+ *
+ * A leading ID3v2 tag and an encoder info frame (Xing, Info or VBRI) are skipped. A
+ * frame is accepted on first sync only if another frame follows where its header says,
+ * so stray sync bits inside tags or cover art are not mistaken for audio. Trailing tags
+ * and garbage end the walk.
+ */
+final class Mp3FrameReader {
+
+    // Enough to find the first frame behind a badly sized tag, small enough to give up on non-MP3 files
+    private static final int MAX_SYNC_SCAN = 1024 * 1024;
+
+    // Junk tolerated between two frames before the rest of the file is treated as not audio
+    private static final int MAX_RESYNC_SCAN = 4096;
+
+    // The largest possible frame (layer II, 384 kbps, 32 kHz, padded) plus the next header
+    private static final int MAX_FRAME_LOOKAHEAD = 4608 + 4;
+
+    // Sync word, version, layer and sample rate: bits that stay the same from frame to frame
+    private static final int STREAM_MASK = 0xFFFE0C00;
+
+    private static final int[] SAMPLE_RATES = {44100, 48000, 32000};
+
+    private static final int[][] BITRATES_KBPS = {
+        {0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448}, // MPEG-1 layer I
+        {0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384},    // MPEG-1 layer II
+        {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320},     // MPEG-1 layer III
+        {0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256},    // MPEG-2/2.5 layer I
+        {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160},         // MPEG-2/2.5 layer II and III
+    };
+
+    private Mp3FrameReader() {
+    }
+
+    /**
+     * Build the seek index of an MPEG audio stream
+     *
+     * @param content The file content, read once from start to end
+     * @return The index, or null if no audio frames were found
+     */
+    static Mp3SeekIndex readIndex(InputStream content) throws IOException {
+        Cursor in = new Cursor(content);
+        skipId3v2(in);
+
+        Frame first = sync(in, 0, MAX_SYNC_SCAN);
+        if (first == null) {
+            return null;
+        }
+        if (isInfoFrame(in, first)) {
+            in.skip(first.length());
+            first = sync(in, first.header(), MAX_RESYNC_SCAN);
+            if (first == null) {
+                return null;
+            }
+        }
+
+        Mp3SeekIndex.Builder index = new Mp3SeekIndex.Builder(first.sampleRate(), first.samplesPerFrame());
+        Frame frame = first;
+        long end = in.position();
+        while (frame != null && index.add(in.position())) {
+            // A truncated last frame is kept: still worth starting playback from
+            in.skip(frame.length());
+            end = in.position();
+            frame = sync(in, first.header(), MAX_RESYNC_SCAN);
+        }
+        return index.build(end);
+    }
+
+    private static void skipId3v2(Cursor in) throws IOException {
+        byte[] tag = in.peek(10);
+        if (tag.length < 10 || tag[0] != 'I' || tag[1] != 'D' || tag[2] != '3') {
+            return;
+        }
+        // Syncsafe integer: 7 bits per byte
+        long size = ((tag[6] & 0x7F) << 21) | ((tag[7] & 0x7F) << 14) | ((tag[8] & 0x7F) << 7) | (tag[9] & 0x7F);
+        boolean footer = (tag[5] & 0x10) != 0;
+        in.skip(10 + size + (footer ? 10 : 0));
+    }
+
+    /**
+     * Find the next frame, leaving the cursor at its first byte
+     *
+     * @param reference A previous frame header the frame must belong to the same stream as, or 0
+     * @param limit How many bytes to look through
+     * @return The frame, or null if there is none within the limit
+     */
+    private static Frame sync(Cursor in, int reference, int limit) throws IOException {
+        for (int scanned = 0; scanned <= limit; scanned++) {
+            byte[] bytes = in.peek(4);
+            if (bytes.length < 4) {
+                return null;
+            }
+            Frame frame = Frame.parse(toInt(bytes, 0));
+            if (frame != null && (reference == 0 || sameStream(frame.header(), reference))
+                    && (scanned == 0 && reference != 0 || followedByFrame(in, frame))) {
+                return frame;
+            }
+            if (in.read() < 0) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private static boolean followedByFrame(Cursor in, Frame frame) throws IOException {
+        byte[] bytes = in.peek(frame.length() + 4);
+        if (bytes.length < frame.length() + 4) {
+            // The last frame in the file has nothing after it to confirm it
+            return bytes.length == frame.length();
+        }
+        Frame next = Frame.parse(toInt(bytes, frame.length()));
+        return next != null && sameStream(next.header(), frame.header());
+    }
+
+    /**
+     * Encoders put stream information into a first frame that decodes to silence; it is
+     * not audio a player would seek to.
+     */
+    private static boolean isInfoFrame(Cursor in, Frame frame) throws IOException {
+        byte[] bytes = in.peek(Math.min(frame.length(), 64));
+        return hasTag(bytes, 4 + frame.sideInfoLength(), "Xing")
+                || hasTag(bytes, 4 + frame.sideInfoLength(), "Info")
+                || hasTag(bytes, 4 + 32, "VBRI");
+    }
+
+    private static boolean hasTag(byte[] bytes, int offset, String tag) {
+        return bytes.length >= offset + 4
+                && new String(bytes, offset, 4, StandardCharsets.US_ASCII).equals(tag);
+    }
+
+    private static boolean sameStream(int header, int reference) {
+        return (header & STREAM_MASK) == (reference & STREAM_MASK);
+    }
+
+    private static int toInt(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xFF) << 24) | ((bytes[offset + 1] & 0xFF) << 16)
+                | ((bytes[offset + 2] & 0xFF) << 8) | (bytes[offset + 3] & 0xFF);
+    }
+
+    /**
+     * A parsed frame header
+     *
+     * @param header The raw header
+     * @param sampleRate Samples per second
+     * @param samplesPerFrame Samples per channel encoded in the frame
+     * @param length The frame length in bytes, header included
+     * @param sideInfoLength The length of the layer III side information following the header
+     */
+    private record Frame(int header, int sampleRate, int samplesPerFrame, int length, int sideInfoLength) {
+
+        static Frame parse(int header) {
+            if ((header & 0xFFE00000) != 0xFFE00000) {
+                return null;
+            }
+            int version = (header >>> 19) & 3;
+            int layerBits = (header >>> 17) & 3;
+            int bitrateIndex = (header >>> 12) & 0xF;
+            int sampleRateIndex = (header >>> 10) & 3;
+            if (version == 1 || layerBits == 0 || bitrateIndex == 0 || bitrateIndex == 15 || sampleRateIndex == 3) {
+                // Reserved values, or free format which has no length in the header
+                return null;
+            }
+            boolean mpeg1 = version == 3;
+            int layer = 4 - layerBits;
+            int padding = (header >>> 9) & 1;
+            boolean mono = ((header >>> 6) & 3) == 3;
+
+            int table = mpeg1 ? layer - 1 : (layer == 1 ? 3 : 4);
+            int bitrate = BITRATES_KBPS[table][bitrateIndex] * 1000;
+            int sampleRate = SAMPLE_RATES[sampleRateIndex] >> (mpeg1 ? 0 : version == 2 ? 1 : 2);
+            int samplesPerFrame = layer == 1 ? 384 : (layer == 3 && !mpeg1 ? 576 : 1152);
+            int length = layer == 1
+                    ? (12 * bitrate / sampleRate + padding) * 4
+                    : samplesPerFrame / 8 * bitrate / sampleRate + padding;
+            int sideInfoLength = mpeg1 ? (mono ? 17 : 32) : (mono ? 9 : 17);
+            return new Frame(header, sampleRate, samplesPerFrame, length, sideInfoLength);
+        }
+    }
+
+    /**
+     * A buffered stream that knows its position and can look ahead without consuming
+     */
+    private static final class Cursor {
+
+        private final BufferedInputStream in;
+        private long position;
+
+        Cursor(InputStream content) {
+            this.in = new BufferedInputStream(content, 64 * 1024);
+        }
+
+        long position() {
+            return position;
+        }
+
+        int read() throws IOException {
+            int b = in.read();
+            if (b >= 0) {
+                position++;
+            }
+            return b;
+        }
+
+        /**
+         * @return Up to count bytes from the current position, fewer only at the end of the stream
+         */
+        byte[] peek(int count) throws IOException {
+            in.mark(Math.max(count, MAX_FRAME_LOOKAHEAD));
+            try {
+                return in.readNBytes(count);
+            } finally {
+                in.reset();
+            }
+        }
+
+        /**
+         * Skip bytes, stopping early at the end of the stream
+         */
+        void skip(long count) throws IOException {
+            long remaining = count;
+            while (remaining > 0) {
+                long skipped = in.skip(remaining);
+                if (skipped <= 0) {
+                    if (in.read() < 0) {
+                        break;
+                    }
+                    skipped = 1;
+                }
+                remaining -= skipped;
+                position += skipped;
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.daw.groovy.media;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.daw.groovy.exception.StorageException;
+import com.daw.groovy.exception.StorageFileNotFoundException;
+import com.daw.groovy.service.SongAudioChangedEvent;
+import com.daw.groovy.storage.StorageService;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.Locale;
+
+/**
+ * Cuts a short preview clip out of every stored MP3 for browse pages, so autoplaying
+ * previews transfer a fraction of the song.
+ *
+ * The clip is copied frame by frame, without re-encoding, from the configured offset; a
+ * song too short for that starts its preview earlier. Clips are stored next to the audio
+ * under a name that includes the offset and length, so changing either produces new clips
+ * rather than serving stale ones, and are served under versioned URLs that can be cached
+ * for good.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class PreviewService {
+
+    private final StorageService storageService;
+    private final SeekIndexService seekIndexService;
+
+    @Value("${previews.offset:30s}")
+    private Duration offset;
+
+    @Value("${previews.length:30s}")
+    private Duration length;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSongAudioChanged(SongAudioChangedEvent event) {
+        if (!isClippable(event.filename())) {
+            return;
+        }
+        Thread.ofVirtual().name("preview-clipper").start(() -> {
+            try {
+                cut(event.filename());
+            } catch (RuntimeException e) {
+                log.warn("Could not cut a preview of {} for song {}", event.filename(), event.songId(), e);
+            }
+        });
+    }
+
+    /**
+     * @param filename The stored MP3
+     * @return The version of its preview, for the preview URL
+     * @throws IllegalStateException if the audio is not MP3
+     */
+    public String getVersion(String filename) {
+        if (!isClippable(filename)) {
+            throw new IllegalStateException("Previews are only available for MP3 audio");
+        }
+        return MediaVersions.of(filename, clipName());
+    }
+
+    /**
+     * @param filename The stored MP3
+     * @param version The version from the preview URL
+     * @return The preview clip, cut now if it has not been yet
+     * @throws StorageFileNotFoundException if the version is not the current one
+     */
+    public Resource getPreview(String filename, String version) {
+        if (!version.equals(getVersion(filename))) {
+            throw new StorageFileNotFoundException("No preview " + version + " for " + filename);
+        }
+        try {
+            return storageService.loadDerived(filename, clipName());
+        } catch (StorageFileNotFoundException e) {
+            log.debug("No preview of {} yet", filename);
+        }
+        cut(filename);
+        return storageService.loadDerived(filename, clipName());
+    }
+
+    private void cut(String filename) {
+        Mp3SeekIndex index = seekIndexService.getIndex(filename)
+                .orElseThrow(() -> new IllegalStateException("No MPEG audio frames found in " + filename));
+        double clipSeconds = length.toNanos() / 1e9;
+        double startSeconds = Math.max(0, Math.min(offset.toNanos() / 1e9, index.getDuration() - clipSeconds));
+
+        int first = (int) Math.min(index.getFrameCount() - 1, Math.floor(startSeconds / index.getFrameDuration()));
+        int next = (int) Math.min(index.getFrameCount(), first + Math.round(clipSeconds / index.getFrameDuration()));
+        long start = index.getFrameOffset(first);
+        long end = next < index.getFrameCount() ? index.getFrameOffset(next) : index.getEndOffset();
+
+        byte[] clip;
+        try (InputStream audio = storageService.loadAsFileResource(filename).getInputStream()) {
+            audio.skipNBytes(start);
+            clip = audio.readNBytes((int) (end - start));
+        } catch (IOException e) {
+            throw new StorageException("Failed to cut a preview of " + filename, e);
+        }
+        storageService.storeDerived(filename, clipName(), new ByteArrayInputStream(clip));
+        log.debug("Cut a {}s preview of {} at {}s ({} bytes)",
+                (next - first) * index.getFrameDuration(), filename, first * index.getFrameDuration(), clip.length);
+    }
+
+    private String clipName() {
+        return "preview-" + offset.toMillis() + "-" + length.toMillis() + ".mp3";
+    }
+
+    private boolean isClippable(String filename) {
+        return filename != null && filename.toLowerCase(Locale.ROOT).endsWith(".mp3");
+    }
+}
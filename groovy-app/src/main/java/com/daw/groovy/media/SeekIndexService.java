@@ -0,0 +1,122 @@
+package com.daw.groovy.media;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.daw.groovy.exception.StorageException;
+import com.daw.groovy.exception.StorageFileNotFoundException;
+import com.daw.groovy.service.SongAudioChangedEvent;
+import com.daw.groovy.storage.SingleFlight;
+import com.daw.groovy.storage.StorageService;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Keeps a seek index next to every stored MP3, so playback can start at the frame for a
+ * given time instead of a guessed byte offset.
+ *
+ * The index is built in the background once a song's new audio is committed, and on
+ * first use for files stored before indexing existed. Each file is scanned once; the
+ * storage drops the index together with the file.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class SeekIndexService {
+
+    static final String SEEK_INDEX = "seek.idx";
+
+    private final StorageService storageService;
+
+    // Builds in progress, so concurrent requests for a new file share one scan
+    private final SingleFlight<String, Optional<Mp3SeekIndex>> builds = new SingleFlight<>();
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSongAudioChanged(SongAudioChangedEvent event) {
+        if (!isIndexable(event.filename())) {
+            return;
+        }
+        Thread.ofVirtual().name("seek-index").start(() -> {
+            try {
+                build(event.filename());
+            } catch (RuntimeException e) {
+                log.warn("Could not index {} for song {}", event.filename(), event.songId(), e);
+            }
+        });
+    }
+
+    /**
+     * Find where to start streaming a stored file to play from a given time
+     *
+     * @param filename The stored MP3
+     * @param seconds The playback time to start at
+     * @return The frame to start from
+     * @throws IllegalStateException if the file cannot be seeked by time or the time is out of range
+     */
+    public Mp3SeekIndex.SeekPoint seek(String filename, double seconds) {
+        if (!(seconds >= 0) || Double.isInfinite(seconds)) {
+            throw new IllegalStateException("Seek time must be a non-negative number of seconds");
+        }
+        Mp3SeekIndex index = getIndex(filename)
+                .orElseThrow(() -> new IllegalStateException("Seeking by time is only supported for MP3 audio"));
+        return index.seek(seconds)
+                .orElseThrow(() -> new IllegalStateException(
+                        "Seek time " + seconds + "s is past the end of the audio (" + index.getDuration() + "s)"));
+    }
+
+    /**
+     * @param filename The stored file
+     * @return Its seek index, built now if it has none yet; empty if it is not MPEG audio
+     */
+    public Optional<Mp3SeekIndex> getIndex(String filename) {
+        if (!isIndexable(filename)) {
+            return Optional.empty();
+        }
+        try (InputStream in = storageService.loadDerived(filename, SEEK_INDEX).getInputStream()) {
+            return Optional.of(Mp3SeekIndex.readFrom(in));
+        } catch (StorageFileNotFoundException e) {
+            log.debug("No seek index for {} yet", filename);
+        } catch (IOException e) {
+            log.warn("Unreadable seek index for {}, rebuilding it", filename, e);
+        }
+        return build(filename);
+    }
+
+    private Optional<Mp3SeekIndex> build(String filename) {
+        return builds.run(filename, () -> scan(filename));
+    }
+
+    private Optional<Mp3SeekIndex> scan(String filename) {
+        Mp3SeekIndex index;
+        try (InputStream in = storageService.loadAsFileResource(filename).getInputStream()) {
+            index = Mp3FrameReader.readIndex(in);
+        } catch (IOException e) {
+            throw new StorageException("Failed to read " + filename + " for indexing", e);
+        }
+        if (index == null) {
+            log.warn("No MPEG audio frames found in {}", filename);
+            return Optional.empty();
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            index.writeTo(bytes);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not serialize seek index", e);
+        }
+        storageService.storeDerived(filename, SEEK_INDEX, new ByteArrayInputStream(bytes.toByteArray()));
+        log.debug("Indexed {}: {}s in {} bytes", filename, index.getDuration(), bytes.size());
+        return Optional.of(index);
+    }
+
+    private boolean isIndexable(String filename) {
+        return filename != null && filename.toLowerCase(Locale.ROOT).endsWith(".mp3");
+    }
+}
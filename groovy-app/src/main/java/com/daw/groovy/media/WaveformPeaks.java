@@ -0,0 +1,93 @@
+package com.daw.groovy.media;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Reduces decoded PCM to the minimum and maximum sample of every fixed-size block, which
+ * is all a player needs to draw a waveform.
+ *
+ * Peaks are written in the audiowaveform binary format (version 1, 8-bit), which browser
+ * libraries such as waveform-data.js read directly: a 20-byte little-endian header
+ * followed by one signed byte each for the minimum and maximum of every point. All
+ * channels are folded into one.
+ */
+final class WaveformPeaks {
+
+    private static final int VERSION = 1;
+    private static final int FLAG_8_BIT = 1;
+    private static final int HEADER_LENGTH = 20;
+
+    private final int sampleRate;
+    private final int samplesPerPoint;
+    private final ByteArrayOutputStream points = new ByteArrayOutputStream();
+
+    private int pointCount;
+    private int remaining;
+    private int min = Short.MAX_VALUE;
+    private int max = Short.MIN_VALUE;
+
+    /**
+     * @param sampleRate Samples per second per channel
+     * @param samplesPerPoint Samples per channel folded into each point
+     */
+    WaveformPeaks(int sampleRate, int samplesPerPoint) {
+        this.sampleRate = sampleRate;
+        this.samplesPerPoint = samplesPerPoint;
+        this.remaining = samplesPerPoint;
+    }
+
+    /**
+     * @param samples Interleaved 16-bit samples
+     * @param length How many entries of the array are samples
+     * @param channels How many channels are interleaved
+     */
+    void add(short[] samples, int length, int channels) {
+        int position = 0;
+        while (position < length) {
+            int end = Math.min(length, position + remaining * channels);
+            // Branch-free over a contiguous slice, so the JIT can vectorise the reduction
+            int blockMin = min;
+            int blockMax = max;
+            for (int i = position; i < end; i++) {
+                blockMin = Math.min(blockMin, samples[i]);
+                blockMax = Math.max(blockMax, samples[i]);
+            }
+            min = blockMin;
+            max = blockMax;
+            remaining -= (end - position) / channels;
+            position = end;
+            if (remaining <= 0) {
+                flush();
+            }
+        }
+    }
+
+    /**
+     * @return The peaks in audiowaveform format, including a last partial point
+     */
+    byte[] toByteArray() {
+        if (remaining < samplesPerPoint) {
+            flush();
+        }
+        return ByteBuffer.allocate(HEADER_LENGTH + points.size())
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .putInt(VERSION)
+                .putInt(FLAG_8_BIT)
+                .putInt(sampleRate)
+                .putInt(samplesPerPoint)
+                .putInt(pointCount)
+                .put(points.toByteArray())
+                .array();
+    }
+
+    private void flush() {
+        points.write(min >> 8);
+        points.write(max >> 8);
+        pointCount++;
+        remaining = samplesPerPoint;
+        min = Short.MAX_VALUE;
+        max = Short.MIN_VALUE;
+    }
+}
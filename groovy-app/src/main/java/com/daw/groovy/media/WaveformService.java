@@ -0,0 +1,145 @@
+package com.daw.groovy.media;
+
+import javazoom.jl.decoder.Bitstream;
+import javazoom.jl.decoder.BitstreamException;
+import javazoom.jl.decoder.Decoder;
+import javazoom.jl.decoder.DecoderException;
+import javazoom.jl.decoder.Header;
+import javazoom.jl.decoder.SampleBuffer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.daw.groovy.exception.StorageException;
+import com.daw.groovy.exception.StorageFileNotFoundException;
+import com.daw.groovy.service.SongAudioChangedEvent;
+import com.daw.groovy.storage.StorageService;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Keeps downsampled peak data next to every stored MP3, so players can draw a waveform
+ * from a few KB instead of downloading and decoding the whole song.
+ *
+ * Each file is decoded once, in the background, when new audio is committed; files
+ * stored before are queued on first request. Decoding is CPU bound, so only a few files
+ * are decoded at a time.
+ */
+@Service
+@Slf4j
+public class WaveformService {
+
+    static final String WAVEFORM = "waveform.dat";
+
+    private final StorageService storageService;
+    private final SeekIndexService seekIndexService;
+    private final Semaphore decoders;
+    private final int points;
+
+    // Files being decoded, so repeated requests do not queue the same work twice
+    private final Set<String> pending = ConcurrentHashMap.newKeySet();
+
+    public WaveformService(StorageService storageService,
+                           SeekIndexService seekIndexService,
+                           @Value("${waveforms.points:2000}") int points,
+                           @Value("${waveforms.max-concurrent-decodes:2}") int maxConcurrentDecodes) {
+        this.storageService = storageService;
+        this.seekIndexService = seekIndexService;
+        this.points = points;
+        this.decoders = new Semaphore(maxConcurrentDecodes);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSongAudioChanged(SongAudioChangedEvent event) {
+        if (isDecodable(event.filename())) {
+            generateInBackground(event.filename());
+        }
+    }
+
+    /**
+     * @param filename The stored MP3
+     * @return Its peaks in audiowaveform format; empty while they are still being generated
+     * @throws IllegalStateException if the audio is not MP3
+     */
+    public Optional<Resource> getWaveform(String filename) {
+        if (!isDecodable(filename)) {
+            throw new IllegalStateException("Waveforms are only available for MP3 audio");
+        }
+        try {
+            return Optional.of(storageService.loadDerived(filename, WAVEFORM));
+        } catch (StorageFileNotFoundException e) {
+            log.debug("No waveform for {} yet", filename);
+        }
+        generateInBackground(filename);
+        return Optional.empty();
+    }
+
+    private void generateInBackground(String filename) {
+        if (!pending.add(filename)) {
+            return;
+        }
+        Thread.ofVirtual().name("waveform").start(() -> {
+            try {
+                decoders.acquire();
+                try {
+                    generate(filename);
+                } finally {
+                    decoders.release();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException e) {
+                log.warn("Could not generate a waveform for {}", filename, e);
+            } finally {
+                pending.remove(filename);
+            }
+        });
+    }
+
+    private void generate(String filename) {
+        Mp3SeekIndex index = seekIndexService.getIndex(filename)
+                .orElseThrow(() -> new IllegalStateException("No MPEG audio frames found in " + filename));
+        long samples = (long) index.getFrameCount() * index.getSamplesPerFrame();
+        int samplesPerPoint = (int) Math.max(1, (samples + points - 1) / points);
+        WaveformPeaks peaks = new WaveformPeaks(index.getSampleRate(), samplesPerPoint);
+
+        int frames = 0;
+        try (InputStream audio = storageService.loadAsFileResource(filename).getInputStream()) {
+            Bitstream bitstream = new Bitstream(audio);
+            Decoder decoder = new Decoder();
+            Header header;
+            while ((header = bitstream.readFrame()) != null) {
+                try {
+                    SampleBuffer output = (SampleBuffer) decoder.decodeFrame(header, bitstream);
+                    peaks.add(output.getBuffer(), output.getBufferLength(), output.getChannelCount());
+                    frames++;
+                } catch (DecoderException e) {
+                    log.debug("Skipping undecodable frame {} of {}", frames, filename);
+                }
+                bitstream.closeFrame();
+            }
+        } catch (BitstreamException e) {
+            // Trailing garbage: what was decoded so far is still the waveform
+            log.debug("Stopped decoding {} after {} frames", filename, frames, e);
+        } catch (IOException e) {
+            throw new StorageException("Failed to read " + filename + " for its waveform", e);
+        }
+
+        byte[] waveform = peaks.toByteArray();
+        storageService.storeDerived(filename, WAVEFORM, new ByteArrayInputStream(waveform));
+        log.debug("Generated a waveform of {} from {} frames ({} bytes)", filename, frames, waveform.length);
+    }
+
+    private boolean isDecodable(String filename) {
+        return filename != null && filename.toLowerCase(Locale.ROOT).endsWith(".mp3");
+    }
+}
@@ -0,0 +1,58 @@
+package com.daw.groovy.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.daw.groovy.entity.Album;
+import com.daw.groovy.entity.Song;
+import com.daw.groovy.enums.IngestStatus;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface SongRepository extends JpaRepository<Song, Long> {
+    
+    List<Song> findByAlbum(Album album);
+    
+    List<Song> findByAlbumId(Long albumId);
+    
+    List<Song> findByTitleContainingIgnoreCase(String title);
+    
+    /**
+     * Find the songs whose audio still has to be ingested
+     * @param statuses the ingest statuses that mean the work is not done
+     * @return the IDs of songs with audio in one of the statuses, or never ingested
+     */
+    @Query("SELECT s.id FROM Song s WHERE s.filePath IS NOT NULL AND (s.ingestStatus IS NULL OR s.ingestStatus IN :statuses)")
+    List<Long> findIdsAwaitingIngest(@Param("statuses") Collection<IngestStatus> statuses);
+
+    /**
+     * Set the ingest status of a song, unless its audio has been replaced
+     * @param id the song ID
+     * @param filePath the audio the status is about
+     * @param status the new status
+     * @return the number of songs updated, 0 if the audio changed
+     */
+    @Modifying
+    @Query("UPDATE Song s SET s.ingestStatus = :status WHERE s.id = :id AND s.filePath = :filePath")
+    int updateIngestStatus(@Param("id") Long id, @Param("filePath") String filePath, @Param("status") IngestStatus status);
+
+    /**
+     * Record what was read from a song's audio and mark it ready, unless the audio has
+     * been replaced meanwhile. Only the ingested columns are written, so edits made to
+     * the song in the meantime are kept.
+     * @return the number of songs updated, 0 if the audio changed
+     */
+    @Modifying
+    @Query("UPDATE Song s SET s.ingestStatus = com.daw.groovy.enums.IngestStatus.READY, "
+            + "s.duration = COALESCE(:duration, s.duration), s.contentHash = :contentHash, "
+            + "s.trackNumber = :trackNumber, s.genre = :genre "
+            + "WHERE s.id = :id AND s.filePath = :filePath")
+    int completeIngest(@Param("id") Long id, @Param("filePath") String filePath, @Param("duration") Double duration,
+                       @Param("contentHash") String contentHash, @Param("trackNumber") Integer trackNumber,
+                       @Param("genre") String genre);
+}
@@ -0,0 +1,34 @@
+package com.daw.groovy.repository;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import com.daw.groovy.entity.StoredFile;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StoredFileRepository extends JpaRepository<StoredFile, String> {
+
+    /**
+     * Find the stored files holding the given content, whatever their extension
+     * @param contentHash the hex SHA-256 of the content
+     * @return the matching stored files
+     */
+    List<StoredFile> findByContentHash(String contentHash);
+
+    /**
+     * Find a stored file and lock its row until the surrounding transaction ends,
+     * so reference count changes for the same content are serialized
+     * @param filename the content-addressed filename
+     * @return the stored file if it is known
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT s FROM StoredFile s WHERE s.filename = :filename")
+    Optional<StoredFile> findByFilenameForUpdate(@Param("filename") String filename);
+}
@@ -0,0 +1,35 @@
+package com.daw.groovy.security;
+
+import io.jsonwebtoken.JwtException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+
+import com.daw.groovy.mediaserver.AccessTokenVerifier;
+
+import java.util.Optional;
+
+/**
+ * Accepts the tokens the API accepts, as checked by {@link JwtAuthenticationFilter}
+ */
+@RequiredArgsConstructor
+public class JwtAccessTokenVerifier implements AccessTokenVerifier {
+
+    private final JwtService jwtService;
+    private final UserDetailsService userDetailsService;
+
+    @Override
+    public Optional<String> verify(String token) {
+        try {
+            String username = jwtService.extractUsername(token);
+            if (username == null) {
+                return Optional.empty();
+            }
+            UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+            return jwtService.isTokenValid(token, userDetails) ? Optional.of(username) : Optional.empty();
+        } catch (JwtException | IllegalArgumentException | UsernameNotFoundException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -4,6 +4,8 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MultipartFile;
 
 import com.daw.groovy.dto.ArtistDto;
 import com.daw.groovy.entity.Artist;
@@ -11,6 +13,7 @@ import com.daw.groovy.enums.Role;
 import com.daw.groovy.exception.ResourceNotFoundException;
 import com.daw.groovy.mapper.ArtistMapper;
 import com.daw.groovy.repository.ArtistRepository;
+import com.daw.groovy.storage.StorageService;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -24,6 +27,7 @@ public class ArtistService {
     private final ArtistRepository artistRepository;
     private final ArtistMapper artistMapper;
     private final PasswordEncoder passwordEncoder;
+    private final StorageService storageService;
     
     public List<ArtistDto> getAllArtists() {
         List<Artist> artistsWithAlbums = artistRepository.findAllWithAlbums();
@@ -75,6 +79,30 @@ public class ArtistService {
         return artistMapper.toDto(updatedArtist);
     }
     
+    /**
+     * Replace an artist's profile picture with an uploaded image
+     * 
+     * @param id The artist ID
+     * @param file The image, JPEG or PNG
+     * @return The name the picture was stored under
+     */
+    @Transactional
+    public String updateProfilePicture(Long id, MultipartFile file) {
+        Artist artist = artistRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Artist not found with id: " + id));
+        
+        // Release the previous picture so storage can reclaim it
+        if (artist.getProfilePicture() != null) {
+            storageService.delete(artist.getProfilePicture());
+        }
+        
+        String extension = "png".equalsIgnoreCase(StringUtils.getFilenameExtension(file.getOriginalFilename())) ? "png" : "jpg";
+        String filename = storageService.store(file, "artist" + id + "." + extension);
+        artist.setProfilePicture(filename);
+        artistRepository.save(artist);
+        return filename;
+    }
+    
     @Transactional
     public void deleteArtist(Long id) {
         Artist artist = artistRepository.findById(id)
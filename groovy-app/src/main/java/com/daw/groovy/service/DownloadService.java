@@ -0,0 +1,139 @@
+package com.daw.groovy.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import com.daw.groovy.dto.AlbumDto;
+import com.daw.groovy.dto.PlaylistDto;
+import com.daw.groovy.dto.SongDto;
+import com.daw.groovy.exception.ResourceNotFoundException;
+import com.daw.groovy.exception.StorageFileNotFoundException;
+import com.daw.groovy.storage.StorageService;
+import com.daw.groovy.streaming.ZipArchive;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Resolves albums and playlists into the stored files to download for offline use, so a
+ * client fetches a whole collection in one authenticated request.
+ *
+ * Tracks are named after their position and title, and files missing from storage are
+ * left out rather than failing the whole download.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class DownloadService {
+
+    private static final int MAX_NAME_LENGTH = 120;
+
+    private final AlbumService albumService;
+    private final PlaylistService playlistService;
+    private final StorageService storageService;
+
+    /**
+     * @param albumId The album ID
+     * @return The album's tracks in track order, and its cover
+     * @throws ResourceNotFoundException if the album does not exist or has no stored files
+     */
+    public ZipArchive getAlbumArchive(Long albumId) {
+        AlbumDto album = albumService.getAlbumById(albumId);
+        List<SongDto> songs = new ArrayList<>(album.getSongs());
+        songs.sort(Comparator.comparing(SongDto::getTrackNumber, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(SongDto::getId));
+
+        Entries entries = new Entries();
+        for (int i = 0; i < songs.size(); i++) {
+            SongDto song = songs.get(i);
+            entries.add(song.getFilePath(), String.format(Locale.ROOT, "%02d - %s", i + 1, song.getTitle()));
+        }
+        entries.add(album.getCoverImage(), "cover");
+        return entries.toArchive(archiveName(album.getArtistName(), album.getName()));
+    }
+
+    /**
+     * @param playlistId The playlist ID
+     * @return The playlist's tracks in playlist order
+     * @throws ResourceNotFoundException if the playlist does not exist or has no stored files
+     */
+    public ZipArchive getPlaylistArchive(Long playlistId) {
+        PlaylistDto playlist = playlistService.getPlaylistById(playlistId);
+        List<SongDto> songs = playlist.getSongs();
+
+        Entries entries = new Entries();
+        for (int i = 0; i < songs.size(); i++) {
+            SongDto song = songs.get(i);
+            entries.add(song.getFilePath(),
+                    String.format(Locale.ROOT, "%02d - %s - %s", i + 1, song.getArtistName(), song.getTitle()));
+        }
+        return entries.toArchive(archiveName(null, playlist.getName()));
+    }
+
+    private static String archiveName(String artist, String title) {
+        return sanitize(artist == null ? title : artist + " - " + title) + ".zip";
+    }
+
+    /**
+     * Make a name safe to extract on any file system
+     */
+    private static String sanitize(String name) {
+        String safe = String.valueOf(name).replaceAll("[\\\\/:*?\"<>|\\p{Cntrl}]", "_").strip();
+        if (safe.length() > MAX_NAME_LENGTH) {
+            safe = safe.substring(0, MAX_NAME_LENGTH).strip();
+        }
+        return safe.isEmpty() || safe.chars().allMatch(c -> c == '.') ? "untitled" : safe;
+    }
+
+    /**
+     * Collects archive entries, skipping files that are not stored and keeping names unique
+     */
+    private final class Entries {
+
+        private final List<ZipArchive.Entry> entries = new ArrayList<>();
+        private final Set<String> names = new HashSet<>();
+
+        void add(String filename, String title) {
+            if (filename == null || filename.isEmpty()) {
+                return;
+            }
+            Optional<Resource> resource = load(filename);
+            if (resource.isEmpty()) {
+                return;
+            }
+            String base = sanitize(title);
+            String extension = Optional.ofNullable(StringUtils.getFilenameExtension(filename))
+                    .map(ext -> "." + ext.toLowerCase(Locale.ROOT))
+                    .orElse("");
+            String name = base + extension;
+            for (int copy = 2; !names.add(name.toLowerCase(Locale.ROOT)); copy++) {
+                name = base + " (" + copy + ")" + extension;
+            }
+            entries.add(new ZipArchive.Entry(name, resource.get()));
+        }
+
+        ZipArchive toArchive(String filename) {
+            if (entries.isEmpty()) {
+                throw new ResourceNotFoundException("No stored files to download");
+            }
+            return new ZipArchive(filename, List.copyOf(entries));
+        }
+
+        private Optional<Resource> load(String filename) {
+            try {
+                return Optional.of(storageService.loadAsFileResource(filename));
+            } catch (StorageFileNotFoundException e) {
+                log.warn("Leaving {} out of the download: {}", filename, e.getMessage());
+                return Optional.empty();
+            }
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package com.daw.groovy.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.daw.groovy.entity.Song;
+import com.daw.groovy.enums.IngestStatus;
+import com.daw.groovy.exception.StorageException;
+import com.daw.groovy.media.Id3Tag;
+import com.daw.groovy.media.Mp3SeekIndex;
+import com.daw.groovy.media.SeekIndexService;
+import com.daw.groovy.repository.SongRepository;
+import com.daw.groovy.storage.StorageService;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads what a song's audio says about itself once it is stored: the duration measured
+ * from its MP3 frames, its ID3 tags and its content hash. Uploads only store the file
+ * and return; the song is then ingested in the background and its status shows the
+ * progress.
+ *
+ * Songs wait in a bounded queue for a fixed number of virtual-thread workers. When the
+ * queue is full, the thread committing the upload waits briefly for room, which slows
+ * bulk uploads to the pace ingest can keep up with; if there is still no room the song
+ * stays pending and a periodic sweep queues it later. The sweep also picks up songs
+ * whose ingest was interrupted by a restart.
+ */
+@Service
+@Slf4j
+public class IngestPipeline {
+
+    // Statuses a sweep queues again, unless the song is already queued or being ingested
+    private static final Set<IngestStatus> UNFINISHED = EnumSet.of(IngestStatus.PENDING, IngestStatus.PROCESSING);
+
+    private final SongRepository songRepository;
+    private final StorageService storageService;
+    private final SeekIndexService seekIndexService;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<Long> queue;
+    private final int workerCount;
+    private final Duration enqueueTimeout;
+
+    // Songs queued or being ingested, so events and sweeps do not queue them twice
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+    private final List<Thread> workers = new ArrayList<>();
+
+    public IngestPipeline(SongRepository songRepository,
+                          StorageService storageService,
+                          SeekIndexService seekIndexService,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${ingest.queue-capacity:100}") int queueCapacity,
+                          @Value("${ingest.workers:4}") int workerCount,
+                          @Value("${ingest.enqueue-timeout:2s}") Duration enqueueTimeout) {
+        this.songRepository = songRepository;
+        this.storageService = storageService;
+        this.seekIndexService = seekIndexService;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.workerCount = workerCount;
+        this.enqueueTimeout = enqueueTimeout;
+    }
+
+    @PostConstruct
+    public void start() {
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(Thread.ofVirtual().name("ingest-" + i).start(this::work));
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        workers.forEach(Thread::interrupt);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onSongAudioChanged(SongAudioChangedEvent event) {
+        submit(event.songId(), enqueueTimeout);
+    }
+
+    /**
+     * Queue the songs that were not queued when their audio changed, or whose ingest
+     * did not finish
+     */
+    @Scheduled(initialDelayString = "PT5S", fixedDelayString = "${ingest.sweep-interval:PT1M}")
+    public void sweep() {
+        for (Long songId : songRepository.findIdsAwaitingIngest(UNFINISHED)) {
+            if (!inFlight.contains(songId) && !submit(songId, enqueueTimeout)) {
+                // Still full: the rest waits for the next sweep
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return Whether the song is queued or already in the pipeline
+     */
+    private boolean submit(Long songId, Duration timeout) {
+        if (!inFlight.add(songId)) {
+            return true;
+        }
+        try {
+            if (queue.offer(songId, timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+            log.warn("Ingest queue is full, song {} stays pending until the next sweep", songId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        inFlight.remove(songId);
+        return false;
+    }
+
+    private void work() {
+        while (!Thread.currentThread().isInterrupted()) {
+            Long songId;
+            try {
+                songId = queue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            boolean replaced = false;
+            try {
+                replaced = ingest(songId);
+            } catch (RuntimeException e) {
+                log.warn("Could not ingest the audio of song {}", songId, e);
+            } finally {
+                inFlight.remove(songId);
+            }
+            if (replaced) {
+                // The event for the new audio was dropped while this song was in flight
+                submit(songId, Duration.ZERO);
+            }
+        }
+    }
+
+    /**
+     * @return Whether the song's audio was replaced while it was being ingested
+     */
+    private boolean ingest(Long songId) {
+        String filename = transactionTemplate.execute(status -> songRepository.findById(songId)
+                .map(Song::getFilePath)
+                .filter(path -> songRepository.updateIngestStatus(songId, path, IngestStatus.PROCESSING) > 0)
+                .orElse(null));
+        if (filename == null) {
+            // Deleted, or its audio removed
+            return false;
+        }
+
+        try {
+            return read(songId, filename);
+        } catch (RuntimeException e) {
+            transactionTemplate.executeWithoutResult(status ->
+                    songRepository.updateIngestStatus(songId, filename, IngestStatus.FAILED));
+            throw e;
+        }
+    }
+
+    private boolean read(Long songId, String filename) {
+        String contentHash;
+        Id3Tag tag;
+        try (DigestInputStream in = new DigestInputStream(
+                new BufferedInputStream(storageService.loadAsFileResource(filename).getInputStream()), sha256())) {
+            tag = Id3Tag.read(in);
+            in.transferTo(OutputStream.nullOutputStream());
+            contentHash = HexFormat.of().formatHex(in.getMessageDigest().digest());
+        } catch (IOException e) {
+            throw new StorageException("Failed to read " + filename + " for ingest", e);
+        }
+
+        // Not MPEG audio: the client's duration is all there is
+        Double duration = seekIndexService.getIndex(filename)
+                .map(Mp3SeekIndex::getDuration)
+                .map(seconds -> (double) Math.round(seconds))
+                .orElse(null);
+
+        Integer updated = transactionTemplate.execute(status -> songRepository.completeIngest(songId, filename,
+                duration, contentHash, tag.getTrackNumber().orElse(null), tag.getGenre().orElse(null)));
+        if (updated == null || updated == 0) {
+            return songRepository.existsById(songId);
+        }
+        log.debug("Ingested {} for song {}: {}s, {}", filename, songId, duration, contentHash);
+        return false;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
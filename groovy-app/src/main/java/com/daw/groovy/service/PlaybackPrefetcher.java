@@ -0,0 +1,157 @@
+package com.daw.groovy.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import com.daw.groovy.dto.SongDto;
+import com.daw.groovy.exception.ResourceNotFoundException;
+import com.daw.groovy.exception.StorageFileNotFoundException;
+import com.daw.groovy.storage.StorageService;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Reads ahead the tracks that follow the one being played, so moving on to the next
+ * track of an album or playlist does not wait for the disk.
+ *
+ * Only the start of each track is read, since that is what playback waits for. Read-ahead
+ * is best effort: it is skipped when enough is already running, a file being read ahead
+ * for one listener is not read again for another, and a listener's read-ahead is
+ * cancelled when they start another track.
+ */
+@Service
+@Slf4j
+public class PlaybackPrefetcher {
+
+    private final SongService songService;
+    private final PlaylistService playlistService;
+    private final StorageService storageService;
+    private final boolean enabled;
+    private final int trackCount;
+    private final long length;
+    private final Semaphore permits;
+
+    // The read-ahead running for each listener, cancelled when they start another track
+    private final Map<String, Thread> running = new ConcurrentHashMap<>();
+
+    // Files being read ahead, so listeners of the same album share one read
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+    public PlaybackPrefetcher(SongService songService,
+                              PlaylistService playlistService,
+                              StorageService storageService,
+                              @Value("${streaming.prefetch.enabled:true}") boolean enabled,
+                              @Value("${streaming.prefetch.tracks:1}") int trackCount,
+                              @Value("${streaming.prefetch.length:1MB}") DataSize length,
+                              @Value("${streaming.prefetch.max-concurrent:4}") int maxConcurrent) {
+        this.songService = songService;
+        this.playlistService = playlistService;
+        this.storageService = storageService;
+        this.enabled = enabled;
+        this.trackCount = trackCount;
+        this.length = length.toBytes();
+        this.permits = new Semaphore(maxConcurrent);
+    }
+
+    /**
+     * Find the tracks likely to be played after a song
+     *
+     * @param song The song being played
+     * @param playlistId The playlist it is played from, or null if played from its album
+     * @return Up to the configured number of following tracks that have audio; empty if
+     *         read-ahead is disabled, the song is the last one or not in the playlist
+     */
+    public List<SongDto> nextTracks(SongDto song, Long playlistId) {
+        if (!enabled || trackCount <= 0) {
+            return List.of();
+        }
+        List<SongDto> order;
+        if (playlistId != null) {
+            try {
+                order = playlistService.getPlaylistById(playlistId).getSongs();
+            } catch (ResourceNotFoundException e) {
+                // The song itself still plays
+                return List.of();
+            }
+        } else if (song.getAlbumId() != null) {
+            order = new ArrayList<>(songService.getSongsByAlbumId(song.getAlbumId()));
+            order.sort(Comparator.comparing(SongDto::getTrackNumber, Comparator.nullsLast(Comparator.naturalOrder()))
+                    .thenComparing(SongDto::getId));
+        } else {
+            return List.of();
+        }
+
+        List<SongDto> next = new ArrayList<>(trackCount);
+        boolean found = false;
+        for (SongDto track : order) {
+            if (found && track.getFilePath() != null && !track.getFilePath().isEmpty()) {
+                next.add(track);
+                if (next.size() == trackCount) {
+                    break;
+                }
+            }
+            found |= track.getId().equals(song.getId());
+        }
+        return found ? next : List.of();
+    }
+
+    /**
+     * Start reading ahead tracks for a listener in the background, cancelling what was
+     * still being read ahead for them
+     *
+     * @param listener Who is playing, such as their username
+     * @param tracks The tracks to read ahead, from {@link #nextTracks}
+     */
+    public void prefetch(String listener, List<SongDto> tracks) {
+        if (tracks.isEmpty()) {
+            return;
+        }
+        Thread previous = running.remove(listener);
+        if (previous != null) {
+            previous.interrupt();
+        }
+        if (!permits.tryAcquire()) {
+            log.debug("Not reading ahead for {}, enough read-ahead is running", listener);
+            return;
+        }
+        Thread thread = Thread.ofVirtual().name("playback-prefetch").unstarted(() -> {
+            try {
+                for (SongDto track : tracks) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+                    read(track.getFilePath());
+                }
+            } finally {
+                permits.release();
+                running.remove(listener, Thread.currentThread());
+            }
+        });
+        running.put(listener, thread);
+        thread.start();
+    }
+
+    private void read(String filename) {
+        if (!inFlight.add(filename)) {
+            return;
+        }
+        try {
+            storageService.prefetch(filename, length);
+            log.debug("Read ahead {}", filename);
+        } catch (StorageFileNotFoundException e) {
+            log.debug("Not reading ahead {}, it is not stored", filename);
+        } catch (RuntimeException e) {
+            log.warn("Could not read ahead {}", filename, e);
+        } finally {
+            inFlight.remove(filename);
+        }
+    }
+}
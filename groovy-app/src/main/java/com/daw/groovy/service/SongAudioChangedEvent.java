@@ -0,0 +1,11 @@
+package com.daw.groovy.service;
+
+/**
+ * Published when a song is given a new audio file, so that work derived from the audio
+ * (indexes, previews, metadata) can be done once it is committed.
+ *
+ * @param songId The ID of the song
+ * @param filename The stored filename of its new audio
+ */
+public record SongAudioChangedEvent(Long songId, String filename) {
+}
@@ -1,6 +1,8 @@
 package com.daw.groovy.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -9,15 +11,18 @@ import com.daw.groovy.dto.SongDto;
 import com.daw.groovy.entity.Album;
 import com.daw.groovy.entity.Playlist;
 import com.daw.groovy.entity.Song;
+import com.daw.groovy.enums.IngestStatus;
 import com.daw.groovy.exception.ResourceNotFoundException;
 import com.daw.groovy.mapper.SongMapper;
 import com.daw.groovy.repository.AlbumRepository;
 import com.daw.groovy.repository.SongRepository;
 import com.daw.groovy.repository.UserFavoriteRepository;
+import com.daw.groovy.storage.StagedFile;
 import com.daw.groovy.storage.StorageService;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
@@ -28,6 +33,7 @@ public class SongService {
     private final SongMapper songMapper;
     private final StorageService storageService;
     private final UserFavoriteRepository userFavoriteRepository;
+    private final ApplicationEventPublisher eventPublisher;
     
     public List<SongDto> getAllSongs() {
         return songMapper.toDtoList(songRepository.findAll());
@@ -57,10 +63,11 @@ public class SongService {
         
         if (audioFile != null && !audioFile.isEmpty()) {
             String filePath = storageService.store(audioFile);
-            song.setFilePath(filePath);
+            setAudio(song, filePath);
         }
         
         Song savedSong = songRepository.save(song);
+        publishAudioChanged(savedSong);
         return songMapper.toDto(savedSong);
     }
     
@@ -74,10 +81,11 @@ public class SongService {
         
         if (audioFile != null && !audioFile.isEmpty()) {
             String filePath = storageService.store(audioFile, customFilename);
-            song.setFilePath(filePath);
+            setAudio(song, filePath);
         }
         
         Song savedSong = songRepository.save(song);
+        publishAudioChanged(savedSong);
         return songMapper.toDto(savedSong);
     }
     
@@ -92,7 +100,12 @@ public class SongService {
             song.setAlbum(album);
         }
         
+        // A duration measured from the audio wins over the client's
+        Double ingestedDuration = song.getIngestStatus() == IngestStatus.READY ? song.getDuration() : null;
         songMapper.updateEntityFromDto(songDto, song);
+        if (ingestedDuration != null) {
+            song.setDuration(ingestedDuration);
+        }
         
         if (audioFile != null && !audioFile.isEmpty()) {
             // Delete old file if exists
@@ -101,13 +114,63 @@ public class SongService {
             }
             
             String filePath = storageService.store(audioFile);
-            song.setFilePath(filePath);
+            setAudio(song, filePath);
+            publishAudioChanged(song);
+        }
+        
+        Song updatedSong = songRepository.save(song);
+        return songMapper.toDto(updatedSong);
+    }
+    
+    /**
+     * Replace the audio of a song with a file that is already in the storage's staging
+     * area, moving it into place rather than copying it
+     */
+    @Transactional
+    public SongDto attachAudio(Long id, StagedFile audioFile) {
+        Song song = songRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Song not found with id: " + id));
+        
+        // Delete old file if exists
+        if (song.getFilePath() != null) {
+            storageService.delete(song.getFilePath());
         }
         
+        setAudio(song, storageService.store(audioFile));
         Song updatedSong = songRepository.save(song);
+        publishAudioChanged(updatedSong);
         return songMapper.toDto(updatedSong);
     }
     
+    /**
+     * Point a song at content the storage already holds, without receiving it again
+     * 
+     * @param id The song ID
+     * @param sha256 The hex SHA-256 of the audio content
+     * @param size The size of the audio content in bytes
+     * @return The updated song, or empty if the content is not stored and must be uploaded
+     */
+    @Transactional
+    public Optional<SongDto> linkStoredAudio(Long id, String sha256, long size) {
+        Song song = songRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Song not found with id: " + id));
+        
+        Optional<String> stored = storageService.acquireByHash(sha256, size);
+        if (stored.isEmpty()) {
+            return Optional.empty();
+        }
+        
+        // Delete old file if exists; the new reference is already taken, so re-linking the same content keeps it
+        if (song.getFilePath() != null) {
+            storageService.delete(song.getFilePath());
+        }
+        
+        setAudio(song, stored.get());
+        Song updatedSong = songRepository.save(song);
+        publishAudioChanged(updatedSong);
+        return Optional.of(songMapper.toDto(updatedSong));
+    }
+    
     @Transactional
     public void deleteSong(Long id) {
         Song song = songRepository.findById(id)
@@ -137,10 +200,26 @@ public class SongService {
         songRepository.deleteById(id);
     }
     
-    public byte[] loadSongFile(String filePath) {
+    public Resource loadSongResource(String filePath) {
         if (filePath == null || filePath.isEmpty()) {
             throw new ResourceNotFoundException("Song file not found");
         }
-        return storageService.loadAsResource(filePath);
+        return storageService.loadAsFileResource(filePath);
+    }
+    
+    private void setAudio(Song song, String filePath) {
+        song.setFilePath(filePath);
+        // Read from the new audio by the ingest pipeline once the change is committed
+        song.setIngestStatus(IngestStatus.PENDING);
+        song.setContentHash(null);
+        song.setTrackNumber(null);
+        song.setGenre(null);
+    }
+    
+    private void publishAudioChanged(Song song) {
+        if (song.getFilePath() != null) {
+            // Delivered after commit, so listeners never see audio that was rolled back
+            eventPublisher.publishEvent(new SongAudioChangedEvent(song.getId(), song.getFilePath()));
+        }
     }
 }
@@ -0,0 +1,197 @@
+package com.daw.groovy.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+
+import com.daw.groovy.dto.SongDto;
+import com.daw.groovy.dto.UploadNegotiationRequest;
+import com.daw.groovy.dto.UploadNegotiationResponse;
+import com.daw.groovy.dto.UploadSessionDto;
+import com.daw.groovy.entity.UploadSession;
+import com.daw.groovy.exception.ResourceNotFoundException;
+import com.daw.groovy.exception.UploadOffsetConflictException;
+import com.daw.groovy.repository.UploadSessionRepository;
+import com.daw.groovy.storage.StagedFile;
+import com.daw.groovy.storage.StorageService;
+import com.daw.groovy.upload.SizeLimitedInputStream;
+
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Resumable uploads: a session is created with the final size, chunks are appended in
+ * place at the offset the client last saw acknowledged, and completing the session
+ * moves the file onto a song without copying it.
+ *
+ * A client that knows the content hash can negotiate first: content the storage already
+ * holds is linked to the song straight away and nothing is uploaded.
+ *
+ * Sessions that receive no data for the configured time-to-live are discarded together
+ * with the bytes received so far.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class UploadService {
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final StorageService storageService;
+    private final SongService songService;
+
+    // Sessions with a chunk being written right now; a second concurrent chunk is refused
+    private final Set<String> activeUploads = ConcurrentHashMap.newKeySet();
+
+    @Value("${uploads.max-size:2GB}")
+    private DataSize maxSize;
+
+    @Value("${uploads.session-ttl:24h}")
+    private Duration sessionTtl;
+
+    public UploadSessionDto createSession(UploadSessionDto request, Long ownerId) {
+        if (request.getSize() > maxSize.toBytes()) {
+            throw new MaxUploadSizeExceededException(maxSize.toBytes());
+        }
+        UploadSession session = UploadSession.builder()
+                .id(UUID.randomUUID().toString())
+                .filename(request.getFilename())
+                .size(request.getSize())
+                .receivedBytes(0L)
+                .ownerId(ownerId)
+                .expiresAt(LocalDateTime.now().plus(sessionTtl))
+                .build();
+        return toDto(uploadSessionRepository.save(session));
+    }
+
+    /**
+     * Negotiate a song's audio upload by content hash before any bytes are sent
+     *
+     * @param request The song and the hash, size and name of the file
+     * @param ownerId The ID of the user uploading
+     * @return The linked song if the content is already stored, otherwise a new upload session
+     */
+    public UploadNegotiationResponse negotiate(UploadNegotiationRequest request, Long ownerId) {
+        Optional<SongDto> linked = songService.linkStoredAudio(request.getSongId(), request.getSha256(), request.getSize());
+        if (linked.isPresent()) {
+            log.debug("Linked song {} to stored content {} without an upload", request.getSongId(), request.getSha256());
+            return UploadNegotiationResponse.builder()
+                    .linked(true)
+                    .song(linked.get())
+                    .build();
+        }
+        UploadSessionDto session = createSession(UploadSessionDto.builder()
+                .filename(request.getFilename())
+                .size(request.getSize())
+                .build(), ownerId);
+        return UploadNegotiationResponse.builder()
+                .linked(false)
+                .upload(session)
+                .build();
+    }
+
+    public UploadSessionDto getSession(String id, Long ownerId) {
+        UploadSession session = findSession(id, ownerId);
+        session.setReceivedBytes(storageService.partialLength(id));
+        return toDto(session);
+    }
+
+    /**
+     * Append a chunk to an upload
+     *
+     * @param id The upload ID
+     * @param ownerId The ID of the user uploading
+     * @param offset The offset the chunk starts at, as acknowledged by the previous chunk
+     * @param content The chunk content
+     * @return The session after appending
+     */
+    public UploadSessionDto appendChunk(String id, Long ownerId, long offset, InputStream content) {
+        UploadSession session = findSession(id, ownerId);
+        if (!activeUploads.add(id)) {
+            throw new UploadOffsetConflictException("Another chunk is being uploaded for " + id,
+                    storageService.partialLength(id));
+        }
+        try {
+            long remaining = session.getSize() - offset;
+            storageService.appendPartial(id, offset, new SizeLimitedInputStream(content, remaining));
+        } finally {
+            // Record whatever made it to disk, even if the connection dropped mid-chunk
+            session.setReceivedBytes(storageService.partialLength(id));
+            session.setExpiresAt(LocalDateTime.now().plus(sessionTtl));
+            uploadSessionRepository.save(session);
+            activeUploads.remove(id);
+        }
+        return toDto(session);
+    }
+
+    /**
+     * Finish an upload and make it the audio of a song
+     *
+     * @param id The upload ID
+     * @param ownerId The ID of the user uploading
+     * @param songId The song to attach the audio to
+     * @return The updated song
+     */
+    public SongDto completeToSong(String id, Long ownerId, Long songId) {
+        UploadSession session = findSession(id, ownerId);
+        long received = storageService.partialLength(id);
+        if (received != session.getSize()) {
+            throw new UploadOffsetConflictException("Upload " + id + " has " + received + " of "
+                    + session.getSize() + " bytes", received);
+        }
+        StagedFile audio = storageService.completePartial(id, session.getFilename());
+        SongDto song = songService.attachAudio(songId, audio);
+        uploadSessionRepository.delete(session);
+        return song;
+    }
+
+    public void cancel(String id, Long ownerId) {
+        UploadSession session = findSession(id, ownerId);
+        storageService.deletePartial(id);
+        uploadSessionRepository.delete(session);
+    }
+
+    @Scheduled(fixedDelayString = "${uploads.cleanup-interval:PT1H}")
+    public void deleteExpiredSessions() {
+        List<UploadSession> expired = uploadSessionRepository.findByExpiresAtBefore(LocalDateTime.now());
+        for (UploadSession session : expired) {
+            if (activeUploads.contains(session.getId())) {
+                continue;
+            }
+            storageService.deletePartial(session.getId());
+            uploadSessionRepository.delete(session);
+        }
+        if (!expired.isEmpty()) {
+            log.info("Discarded {} expired upload sessions", expired.size());
+        }
+    }
+
+    private UploadSession findSession(String id, Long ownerId) {
+        UploadSession session = uploadSessionRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Upload not found with id: " + id));
+        if (!session.getOwnerId().equals(ownerId)) {
+            throw new AccessDeniedException("Upload " + id + " belongs to another user");
+        }
+        return session;
+    }
+
+    private UploadSessionDto toDto(UploadSession session) {
+        return UploadSessionDto.builder()
+                .id(session.getId())
+                .filename(session.getFilename())
+                .size(session.getSize())
+                .offset(session.getReceivedBytes())
+                .expiresAt(session.getExpiresAt())
+                .build();
+    }
+}
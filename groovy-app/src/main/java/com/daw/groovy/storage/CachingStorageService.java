@@ -0,0 +1,299 @@
+package com.daw.groovy.storage;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Storage decorator that keeps the most requested audio files memory-mapped.
+ *
+ * The cache is bounded by a byte budget. Entries are kept in LRU order, but a new file is
+ * only admitted if it has been requested more often than every entry it would push out
+ * (TinyLFU admission), so a burst of one-off plays cannot flush the hot set.
+ *
+ * Concurrent misses for the same file are coalesced: one request maps the file and reads
+ * it into memory while the others wait for it, so a newly released track requested by
+ * many clients at once is read from disk and admitted once.
+ *
+ * Evicted mappings are released by the garbage collector once no response is still
+ * reading from them.
+ */
+@Slf4j
+public class CachingStorageService implements StorageService {
+
+    private final StorageService delegate;
+    private final long maxBytes;
+    private final long maxFileBytes;
+    private final Set<String> extensions;
+
+    private final FrequencySketch sketch;
+    private final LinkedHashMap<String, MappedResource> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long usedBytes;
+
+    private final SingleFlight<String, Resource> loads = new SingleFlight<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rejections = new LongAdder();
+
+    public CachingStorageService(StorageService delegate, long maxBytes, long maxFileBytes,
+                                 Set<String> extensions, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.maxBytes = maxBytes;
+        this.maxFileBytes = Math.min(maxFileBytes, Integer.MAX_VALUE);
+        this.extensions = extensions;
+        this.sketch = new FrequencySketch((int) Math.min(maxBytes >> 20, 1 << 20));
+        registerMetrics(meterRegistry);
+    }
+
+    @Override
+    public void init() {
+        delegate.init();
+    }
+
+    @Override
+    public String store(MultipartFile file) {
+        return delegate.store(file);
+    }
+
+    @Override
+    public String store(MultipartFile file, String filename) {
+        String stored = delegate.store(file, filename);
+        invalidate(stored);
+        return stored;
+    }
+
+    @Override
+    public StagedFile stage(InputStream content, String originalFilename) {
+        return delegate.stage(content, originalFilename);
+    }
+
+    @Override
+    public String store(StagedFile file) {
+        return delegate.store(file);
+    }
+
+    @Override
+    public String store(StagedFile file, String filename) {
+        String stored = delegate.store(file, filename);
+        invalidate(stored);
+        return stored;
+    }
+
+    @Override
+    public boolean isImmutable(String filename) {
+        return delegate.isImmutable(filename);
+    }
+
+    @Override
+    public Optional<String> acquireByHash(String sha256, long size) {
+        return delegate.acquireByHash(sha256, size);
+    }
+
+    @Override
+    public void storeDerived(String filename, String name, InputStream content) {
+        delegate.storeDerived(filename, name, content);
+    }
+
+    @Override
+    public Resource loadDerived(String filename, String name) {
+        return delegate.loadDerived(filename, name);
+    }
+
+    @Override
+    public long appendPartial(String uploadId, long offset, InputStream content) {
+        return delegate.appendPartial(uploadId, offset, content);
+    }
+
+    @Override
+    public long partialLength(String uploadId) {
+        return delegate.partialLength(uploadId);
+    }
+
+    @Override
+    public StagedFile completePartial(String uploadId, String originalFilename) {
+        return delegate.completePartial(uploadId, originalFilename);
+    }
+
+    @Override
+    public void deletePartial(String uploadId) {
+        delegate.deletePartial(uploadId);
+    }
+
+    @Override
+    public byte[] loadAsResource(String filename) {
+        Resource resource = loadAsFileResource(filename);
+        if (resource instanceof MappedResource mapped) {
+            ByteBuffer content = mapped.slice(0, mapped.contentLength());
+            byte[] bytes = new byte[content.remaining()];
+            content.get(bytes);
+            return bytes;
+        }
+        return delegate.loadAsResource(filename);
+    }
+
+    @Override
+    public Resource loadAsFileResource(String filename) {
+        if (!isCacheable(filename)) {
+            return delegate.loadAsFileResource(filename);
+        }
+
+        sketch.increment(filename);
+        synchronized (this) {
+            MappedResource cached = entries.get(filename);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+        }
+        return loads.run(filename, () -> load(filename));
+    }
+
+    private Resource load(String filename) {
+        misses.increment();
+        Resource resource = delegate.loadAsFileResource(filename);
+        try {
+            long length = resource.contentLength();
+            if (!resource.isFile() || length == 0 || length > maxFileBytes || length > maxBytes) {
+                return resource;
+            }
+            MappedResource mapped = admit(filename, resource, length);
+            if (mapped == null) {
+                return resource;
+            }
+            // Page the file in before the requests waiting for it start reading
+            mapped.load();
+            return mapped;
+        } catch (IOException e) {
+            log.warn("Could not map {}, serving it from disk", filename, e);
+            return resource;
+        }
+    }
+
+    @Override
+    public void prefetch(String filename, long length) {
+        // Reading ahead is not a request, so it does not count towards admission
+        if (!isMapped(filename)) {
+            delegate.prefetch(filename, length);
+        }
+    }
+
+    @Override
+    public void delete(String filename) {
+        invalidate(filename);
+        delegate.delete(filename);
+    }
+
+    private synchronized MappedResource admit(String filename, Resource resource, long length) throws IOException {
+        MappedResource existing = entries.get(filename);
+        if (existing != null) {
+            return existing;
+        }
+
+        // Pick victims from the LRU end, but only if the candidate is hotter than all of them
+        List<String> victims = new ArrayList<>();
+        long freed = 0;
+        int candidateFrequency = sketch.frequency(filename);
+        Iterator<Map.Entry<String, MappedResource>> eldest = entries.entrySet().iterator();
+        while (usedBytes - freed + length > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, MappedResource> victim = eldest.next();
+            if (sketch.frequency(victim.getKey()) >= candidateFrequency) {
+                rejections.increment();
+                return null;
+            }
+            victims.add(victim.getKey());
+            freed += victim.getValue().contentLength();
+        }
+
+        MappedResource mapped;
+        try (FileChannel channel = FileChannel.open(resource.getFile().toPath(), StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            mapped = new MappedResource(filename, buffer, resource.lastModified());
+        }
+
+        for (String victim : victims) {
+            entries.remove(victim);
+            evictions.increment();
+        }
+        usedBytes -= freed;
+        entries.put(filename, mapped);
+        usedBytes += length;
+        return mapped;
+    }
+
+    private synchronized void invalidate(String filename) {
+        MappedResource removed = entries.remove(filename);
+        if (removed != null) {
+            usedBytes -= removed.contentLength();
+        }
+    }
+
+    private boolean isCacheable(String filename) {
+        int dot = filename.lastIndexOf('.');
+        return dot >= 0 && extensions.contains(filename.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    private synchronized boolean isMapped(String filename) {
+        return entries.containsKey(filename);
+    }
+
+    private synchronized long usedBytes() {
+        return usedBytes;
+    }
+
+    private synchronized int entryCount() {
+        return entries.size();
+    }
+
+    private void registerMetrics(MeterRegistry registry) {
+        FunctionCounter.builder("groovy.storage.cache.requests", hits, LongAdder::sum)
+                .tag("result", "hit")
+                .description("Mapped file cache lookups")
+                .register(registry);
+        FunctionCounter.builder("groovy.storage.cache.requests", misses, LongAdder::sum)
+                .tag("result", "miss")
+                .description("Mapped file cache lookups")
+                .register(registry);
+        FunctionCounter.builder("groovy.storage.cache.requests", loads, SingleFlight::coalesced)
+                .tag("result", "coalesced")
+                .description("Mapped file cache lookups")
+                .register(registry);
+        FunctionCounter.builder("groovy.storage.cache.evictions", evictions, LongAdder::sum)
+                .description("Files unmapped to make room for hotter ones")
+                .register(registry);
+        FunctionCounter.builder("groovy.storage.cache.rejections", rejections, LongAdder::sum)
+                .description("Files not admitted because they were colder than the entries they would evict")
+                .register(registry);
+        Gauge.builder("groovy.storage.cache.size", this, CachingStorageService::usedBytes)
+                .baseUnit("bytes")
+                .description("Bytes currently mapped")
+                .register(registry);
+        Gauge.builder("groovy.storage.cache.entries", this, CachingStorageService::entryCount)
+                .description("Files currently mapped")
+                .register(registry);
+        Gauge.builder("groovy.storage.cache.capacity", () -> maxBytes)
+                .baseUnit("bytes")
+                .description("Configured mapping budget")
+                .register(registry);
+    }
+}
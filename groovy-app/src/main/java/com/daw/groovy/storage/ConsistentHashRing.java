@@ -0,0 +1,85 @@
+package com.daw.groovy.storage;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Maps keys onto a set of nodes so that adding or removing a node only moves the keys
+ * that node gains or loses, roughly 1/N of them.
+ *
+ * Every node is placed on the ring at several points (virtual nodes) to even out the
+ * share of keys each one receives.
+ *
+ * @param <T> The node type; its toString() identifies it on the ring and must be stable
+ */
+class ConsistentHashRing<T> {
+
+    private final TreeMap<Long, T> ring = new TreeMap<>();
+    private final int nodeCount;
+
+    ConsistentHashRing(Collection<T> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("A hash ring needs at least one node");
+        }
+        for (T node : nodes) {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.put(hash(node + "#" + i), node);
+            }
+        }
+        this.nodeCount = nodes.size();
+    }
+
+    /**
+     * @param key The key to place
+     * @return The node that owns the key
+     */
+    T owner(String key) {
+        Map.Entry<Long, T> entry = ring.ceilingEntry(hash(key));
+        return entry != null ? entry.getValue() : ring.firstEntry().getValue();
+    }
+
+    /**
+     * Get the distinct nodes that follow a key around the ring, starting with its owner
+     *
+     * @param key The key to place
+     * @param count How many nodes to return at most
+     * @return Up to count distinct nodes in ring order
+     */
+    List<T> owners(String key, int count) {
+        int wanted = Math.min(count, nodeCount);
+        List<T> owners = new ArrayList<>(wanted);
+        for (T node : ring.tailMap(hash(key), true).values()) {
+            if (owners.size() == wanted) {
+                return owners;
+            }
+            if (!owners.contains(node)) {
+                owners.add(node);
+            }
+        }
+        for (T node : ring.values()) {
+            if (owners.size() == wanted) {
+                break;
+            }
+            if (!owners.contains(node)) {
+                owners.add(node);
+            }
+        }
+        return owners;
+    }
+
+    private static long hash(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return ByteBuffer.wrap(digest).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
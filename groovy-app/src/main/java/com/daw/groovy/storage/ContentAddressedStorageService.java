@@ -0,0 +1,276 @@
+package com.daw.groovy.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.Resource;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.daw.groovy.entity.StoredFile;
+import com.daw.groovy.exception.StorageException;
+import com.daw.groovy.exception.StorageFileNotFoundException;
+import com.daw.groovy.repository.StoredFileRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Storage decorator that names every upload after the SHA-256 of its content.
+ *
+ * Identical uploads share one file on disk, and because a name can only ever refer to
+ * one content it is safe to cache forever. Each stored name is reference counted in
+ * the stored_files table: storing content takes a reference and deleting releases one,
+ * and the file itself is removed once the last reference is released and the
+ * surrounding transaction has committed.
+ *
+ * Custom filenames are only used for their extension. Files that predate content
+ * addressing have no reference count and are deleted directly.
+ */
+@Slf4j
+public class ContentAddressedStorageService implements StorageService {
+
+    private static final Pattern CONTENT_ADDRESSED_NAME = Pattern.compile("^[0-9a-f]{64}(\\.[A-Za-z0-9]+)*$");
+    private static final Pattern EXTENSION = Pattern.compile("^[A-Za-z0-9]{1,10}$");
+
+    private final StorageService delegate;
+    private final StoredFileRepository storedFileRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate newTransactionTemplate;
+
+    public ContentAddressedStorageService(StorageService delegate, StoredFileRepository storedFileRepository,
+                                          PlatformTransactionManager transactionManager) {
+        this.delegate = delegate;
+        this.storedFileRepository = storedFileRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Override
+    public void init() {
+        delegate.init();
+    }
+
+    @Override
+    public String store(MultipartFile file) {
+        return store(file, file.getOriginalFilename());
+    }
+
+    @Override
+    public String store(MultipartFile file, String filename) {
+        if (file.isEmpty()) {
+            throw new StorageException("Failed to store empty file");
+        }
+        if (file instanceof StagedMultipartFile staged) {
+            return store(staged.getStagedFile(), filename);
+        }
+        try (InputStream inputStream = file.getInputStream()) {
+            return store(delegate.stage(inputStream, filename));
+        } catch (IOException e) {
+            throw new StorageException("Failed to store file " + filename, e);
+        }
+    }
+
+    @Override
+    public StagedFile stage(InputStream content, String originalFilename) {
+        return delegate.stage(content, originalFilename);
+    }
+
+    @Override
+    public String store(StagedFile file) {
+        return store(file, file.originalFilename());
+    }
+
+    @Override
+    public String store(StagedFile file, String filename) {
+        String contentName = contentName(file.sha256(), filename);
+        while (true) {
+            String stored = transactionTemplate.execute(status -> {
+                Optional<StoredFile> existing = storedFileRepository.findByFilenameForUpdate(contentName);
+                if (existing.isEmpty()) {
+                    return null;
+                }
+                StoredFile storedFile = existing.get();
+                if (exists(contentName)) {
+                    // Same content is already on disk, so the upload costs nothing but a reference
+                    discard(file);
+                } else {
+                    delegate.store(file, contentName);
+                }
+                storedFile.setRefCount(storedFile.getRefCount() + 1);
+                return contentName;
+            });
+            if (stored != null) {
+                return stored;
+            }
+            // Without a row there is nothing to lock, so create it first and take the reference under its lock
+            insertIfAbsent(contentName, file);
+        }
+    }
+
+    @Override
+    public Optional<String> acquireByHash(String sha256, long size) {
+        return transactionTemplate.execute(status -> {
+            for (StoredFile candidate : storedFileRepository.findByContentHash(sha256)) {
+                // Lock before taking the reference so a pending purge sees it and keeps the file
+                Optional<StoredFile> locked = storedFileRepository.findByFilenameForUpdate(candidate.getFilename());
+                if (locked.isPresent() && locked.get().getSize() == size && exists(candidate.getFilename())) {
+                    locked.get().setRefCount(locked.get().getRefCount() + 1);
+                    return Optional.of(candidate.getFilename());
+                }
+            }
+            return Optional.<String>empty();
+        });
+    }
+
+    @Override
+    public void storeDerived(String filename, String name, InputStream content) {
+        delegate.storeDerived(filename, name, content);
+    }
+
+    @Override
+    public Resource loadDerived(String filename, String name) {
+        return delegate.loadDerived(filename, name);
+    }
+
+    @Override
+    public long appendPartial(String uploadId, long offset, InputStream content) {
+        return delegate.appendPartial(uploadId, offset, content);
+    }
+
+    @Override
+    public long partialLength(String uploadId) {
+        return delegate.partialLength(uploadId);
+    }
+
+    @Override
+    public StagedFile completePartial(String uploadId, String originalFilename) {
+        return delegate.completePartial(uploadId, originalFilename);
+    }
+
+    @Override
+    public void deletePartial(String uploadId) {
+        delegate.deletePartial(uploadId);
+    }
+
+    @Override
+    public byte[] loadAsResource(String filename) {
+        return delegate.loadAsResource(filename);
+    }
+
+    @Override
+    public Resource loadAsFileResource(String filename) {
+        return delegate.loadAsFileResource(filename);
+    }
+
+    @Override
+    public void prefetch(String filename, long length) {
+        delegate.prefetch(filename, length);
+    }
+
+    @Override
+    public void delete(String filename) {
+        boolean unreferenced = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            Optional<StoredFile> existing = storedFileRepository.findByFilenameForUpdate(filename);
+            if (existing.isEmpty()) {
+                delegate.delete(filename);
+                return false;
+            }
+            StoredFile storedFile = existing.get();
+            storedFile.setRefCount(Math.max(0, storedFile.getRefCount() - 1));
+            return storedFile.getRefCount() == 0;
+        }));
+        if (!unreferenced) {
+            return;
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    purge(filename);
+                }
+            });
+        } else {
+            purge(filename);
+        }
+    }
+
+    @Override
+    public boolean isImmutable(String filename) {
+        return CONTENT_ADDRESSED_NAME.matcher(filename).matches();
+    }
+
+    /**
+     * Remove a file whose last reference was released, unless it was referenced again
+     * in the meantime. Runs in its own transaction holding the row lock, so it cannot
+     * interleave with a concurrent upload of the same content.
+     */
+    private void purge(String filename) {
+        newTransactionTemplate.executeWithoutResult(status ->
+                storedFileRepository.findByFilenameForUpdate(filename)
+                        .filter(storedFile -> storedFile.getRefCount() == 0)
+                        .ifPresent(storedFile -> {
+                            delegate.delete(filename);
+                            storedFileRepository.delete(storedFile);
+                            log.debug("Purged unreferenced file {}", filename);
+                        }));
+    }
+
+    /**
+     * Insert an unreferenced row for the content in its own transaction. When a concurrent
+     * upload of the same content inserts it first the insert fails, which is fine: either
+     * way there is a row to lock afterwards.
+     */
+    private void insertIfAbsent(String contentName, StagedFile file) {
+        try {
+            newTransactionTemplate.executeWithoutResult(status -> {
+                if (!storedFileRepository.existsById(contentName)) {
+                    storedFileRepository.saveAndFlush(StoredFile.builder()
+                            .filename(contentName)
+                            .contentHash(file.sha256())
+                            .size(file.size())
+                            .build());
+                }
+            });
+        } catch (DataIntegrityViolationException e) {
+            log.debug("Stored file {} was inserted concurrently", contentName);
+        }
+    }
+
+    private boolean exists(String filename) {
+        try {
+            delegate.loadAsFileResource(filename);
+            return true;
+        } catch (StorageFileNotFoundException e) {
+            return false;
+        }
+    }
+
+    private void discard(StagedFile file) {
+        try {
+            Files.deleteIfExists(file.path());
+        } catch (IOException e) {
+            log.warn("Could not delete staged file {}", file.path(), e);
+        }
+    }
+
+    private String contentName(String sha256, String filename) {
+        if (filename != null) {
+            int dot = filename.lastIndexOf('.');
+            String extension = dot >= 0 ? filename.substring(dot + 1) : "";
+            if (EXTENSION.matcher(extension).matches()) {
+                return sha256 + "." + extension.toLowerCase(Locale.ROOT);
+            }
+        }
+        return sha256;
+    }
+}
@@ -0,0 +1,274 @@
+package com.daw.groovy.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.FileVisitOption;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory record of where each stored file lives, with its size and modification time,
+ * so serving a file and answering conditional requests takes no file system lookups.
+ *
+ * The index is built at startup by walking the roots, one task per root and top-level
+ * shard directory, and the storage updates it as it writes, moves and deletes files.
+ * Files added behind the application's back are indexed the first time they are asked
+ * for; to also notice files changed or removed that way, enable storage.index.watch.
+ */
+@Slf4j
+class FileMetadataIndex {
+
+    private static final Pattern SHARD_DIR = Pattern.compile("[0-9a-f]{2}");
+
+    // A root and two levels of shard directories
+    private static final int MAX_DEPTH = 3;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    private volatile WatchService watchService;
+
+    /**
+     * @param path Where the file is stored
+     * @param size The file size in bytes
+     * @param lastModified The modification time in milliseconds since the epoch
+     */
+    record Entry(Path path, long size, long lastModified) {
+
+        /**
+         * @param file The file to read, the indexed one or a copy of it
+         * @return A resource that answers length and modification time from the index
+         */
+        FileSystemResource toResource(Path file) {
+            return new IndexedResource(file, size, lastModified);
+        }
+    }
+
+    Optional<Entry> get(String filename) {
+        return Optional.ofNullable(entries.get(filename));
+    }
+
+    /**
+     * Record the current state of a stored file
+     *
+     * @param filename The stored filename
+     * @param path Where the file is
+     * @return The new entry, or null if there is no regular file at the path
+     */
+    Entry refresh(String filename, Path path) {
+        try {
+            Entry entry = entryFor(path, Files.readAttributes(path, BasicFileAttributes.class));
+            if (entry != null) {
+                entries.put(filename, entry);
+            }
+            return entry;
+        } catch (NoSuchFileException e) {
+            entries.computeIfPresent(filename, (name, entry) -> entry.path().equals(path) ? null : entry);
+            return null;
+        } catch (IOException e) {
+            log.warn("Could not read the attributes of {}", path, e);
+            return null;
+        }
+    }
+
+    void remove(String filename) {
+        entries.remove(filename);
+    }
+
+    int size() {
+        return entries.size();
+    }
+
+    /**
+     * Index every stored file under the roots. Where a file is found in several places,
+     * as during a layout migration, its canonical path wins.
+     *
+     * @param roots The storage roots
+     * @param canonicalPath Where each file belongs
+     */
+    void rebuild(List<Path> roots, Function<String, Path> canonicalPath) throws IOException {
+        entries.clear();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> walks = new ArrayList<>();
+            for (Path root : roots) {
+                walks.add(executor.submit(() -> walk(root, 1, canonicalPath)));
+                for (Path shard : shardDirectories(root)) {
+                    walks.add(executor.submit(() -> walk(shard, MAX_DEPTH - 1, canonicalPath)));
+                }
+            }
+            for (Future<?> walk : walks) {
+                walk.get();
+            }
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException cause ? cause : new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while indexing " + roots, e);
+        }
+    }
+
+    /**
+     * Keep the index current with changes made to the roots by other processes
+     *
+     * @param roots The storage roots
+     */
+    synchronized void watch(List<Path> roots) throws IOException {
+        if (watchService != null) {
+            return;
+        }
+        watchService = FileSystems.getDefault().newWatchService();
+        for (Path root : roots) {
+            register(root);
+            for (Path shard : shardDirectories(root)) {
+                register(shard);
+                for (Path nested : shardDirectories(shard)) {
+                    register(nested);
+                }
+            }
+        }
+        Thread.ofVirtual().name("storage-index-watch").start(this::processEvents);
+    }
+
+    synchronized void close() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.warn("Could not close the storage watch service", e);
+            }
+        }
+    }
+
+    private Object walk(Path start, int maxDepth, Function<String, Path> canonicalPath) throws IOException {
+        Files.walkFileTree(start, EnumSet.noneOf(FileVisitOption.class), maxDepth, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                return dir.equals(start) || isShardDirectory(dir) ? FileVisitResult.CONTINUE : FileVisitResult.SKIP_SUBTREE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                Entry entry = entryFor(file, attrs);
+                if (entry != null) {
+                    String filename = file.getFileName().toString();
+                    entries.merge(filename, entry, (existing, found) ->
+                            found.path().equals(canonicalPath.apply(filename)) ? found : existing);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                // Deleted while we were walking
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return null;
+    }
+
+    private void processEvents() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Path directory = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        // Too many changes at once: check what is indexed there, new files are found on their first miss
+                        log.warn("Missed changes under {}, re-reading its indexed files", directory);
+                        entries.forEach((filename, entry) -> {
+                            if (entry.path().getParent().equals(directory)) {
+                                refresh(filename, entry.path());
+                            }
+                        });
+                        continue;
+                    }
+                    Path path = directory.resolve((Path) event.context());
+                    if (Files.isDirectory(path)) {
+                        if (isShardDirectory(path)) {
+                            register(path);
+                        }
+                    } else if (!path.getFileName().toString().startsWith(".")) {
+                        refresh(path.getFileName().toString(), path);
+                    }
+                }
+                key.reset();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            log.debug("Stopped watching storage");
+        } catch (IOException e) {
+            log.warn("Stopped watching storage", e);
+        }
+    }
+
+    private void register(Path directory) throws IOException {
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+    }
+
+    private static List<Path> shardDirectories(Path directory) throws IOException {
+        List<Path> shards = new ArrayList<>();
+        try (var children = Files.newDirectoryStream(directory, FileMetadataIndex::isShardDirectory)) {
+            children.forEach(shards::add);
+        }
+        return shards;
+    }
+
+    private static boolean isShardDirectory(Path path) {
+        return SHARD_DIR.matcher(path.getFileName().toString()).matches() && Files.isDirectory(path);
+    }
+
+    private static Entry entryFor(Path path, BasicFileAttributes attrs) {
+        if (!attrs.isRegularFile() || path.getFileName().toString().startsWith(".")) {
+            return null;
+        }
+        return new Entry(path, attrs.size(), attrs.lastModifiedTime().toMillis());
+    }
+
+    /**
+     * A stored file whose length and modification time come from the index
+     */
+    private static final class IndexedResource extends FileSystemResource {
+
+        private final long size;
+        private final long lastModified;
+
+        IndexedResource(Path file, long size, long lastModified) {
+            super(file);
+            this.size = size;
+            this.lastModified = lastModified;
+        }
+
+        @Override
+        public long contentLength() {
+            return size;
+        }
+
+        @Override
+        public long lastModified() {
+            return lastModified;
+        }
+    }
+}
@@ -0,0 +1,692 @@
+package com.daw.groovy.storage;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Service;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.util.StringUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.daw.groovy.exception.StorageException;
+import com.daw.groovy.exception.StorageFileNotFoundException;
+import com.daw.groovy.exception.UploadOffsetConflictException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class FileSystemStorageService implements StorageService {
+
+    private static final String STAGING_DIR = ".staging";
+    private static final String REPLICAS_DIR = ".replicas";
+    private static final String PARTIAL_DIR = ".partial";
+    private static final String DERIVED_DIR = ".derived";
+
+    // Upper bound for a single transferFrom call while appending to a partial upload
+    private static final long APPEND_CHUNK_SIZE = 1024 * 1024;
+
+    // Reads ahead in small chunks, so a cancelled read-ahead stops soon
+    private static final int READ_AHEAD_CHUNK_SIZE = 64 * 1024;
+
+    // Enough points per root for an even spread with a handful of disks
+    private static final int VIRTUAL_NODES = 128;
+
+    // Replicas are copied in the background, a couple at a time so plays are not starved
+    private static final int MAX_CONCURRENT_REPLICATIONS = 2;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.upload.dir:uploads}")
+    private String uploadDir;
+    
+    // Directories on separate disks to spread files over; defaults to app.upload.dir alone
+    @Value("${storage.roots:}")
+    private List<String> rootDirs;
+
+    // "sharded" spreads files over two levels of hex directories, "flat" keeps them in the root
+    @Value("${storage.layout:flat}")
+    private String layout;
+    
+    @Value("${storage.replication.enabled:false}")
+    private boolean replicationEnabled;
+    
+    // Sketch frequency (0-15) at which a file counts as hot
+    @Value("${storage.replication.hot-threshold:8}")
+    private int replicationThreshold;
+
+    @Value("${storage.replication.max-files:1000}")
+    private int replicationMaxFiles;
+
+    // Also pick up files changed or removed by other processes
+    @Value("${storage.index.watch:false}")
+    private boolean watchEnabled;
+
+    private List<Path> roots;
+
+    private ConsistentHashRing<Path> ring;
+
+    private final AtomicInteger nextStagingRoot = new AtomicInteger();
+
+    private final FrequencySketch sketch = new FrequencySketch(4096);
+
+    private final Map<String, Path> replicas = new ConcurrentHashMap<>();
+
+    // Replications in progress; flipped to false when the file changes before the copy lands
+    private final Map<String, Boolean> replicating = new ConcurrentHashMap<>();
+
+    private final Semaphore replicationPermits = new Semaphore(MAX_CONCURRENT_REPLICATIONS);
+
+    private final FileMetadataIndex index = new FileMetadataIndex();
+
+    @PostConstruct
+    @Override
+    public void init() {
+        List<Path> configured = new ArrayList<>();
+        for (String dir : rootDirs) {
+            if (StringUtils.hasText(dir)) {
+                configured.add(Paths.get(dir.trim()).toAbsolutePath().normalize());
+            }
+        }
+        if (configured.isEmpty()) {
+            configured.add(Paths.get(uploadDir).toAbsolutePath().normalize());
+        }
+        this.roots = List.copyOf(configured);
+        this.ring = new ConsistentHashRing<>(roots, VIRTUAL_NODES);
+        try {
+            for (Path root : roots) {
+                Files.createDirectories(root.resolve(STAGING_DIR));
+                Files.createDirectories(root.resolve(PARTIAL_DIR));
+                // Replicas are not tracked across restarts, so start from a clean slate
+                FileSystemUtils.deleteRecursively(root.resolve(REPLICAS_DIR));
+                Files.createDirectories(root.resolve(REPLICAS_DIR));
+            }
+            index.rebuild(roots, this::canonicalPath);
+            if (watchEnabled) {
+                index.watch(roots);
+            }
+            log.info("Storage initialized at: {} ({} files)", roots, index.size());
+        } catch (IOException e) {
+            throw new StorageException("Could not initialize storage", e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        index.close();
+    }
+
+    @Override
+    public String store(MultipartFile file) {
+        if (file.isEmpty()) {
+            throw new StorageException("Failed to store empty file");
+        }
+        if (file instanceof StagedMultipartFile staged) {
+            return store(staged.getStagedFile());
+        }
+        
+        String originalFilename = file.getOriginalFilename();
+        if (originalFilename == null) {
+            originalFilename = "unknown_file";
+        }
+        
+        String filename = StringUtils.cleanPath(originalFilename);
+        String uniqueFilename = UUID.randomUUID().toString() + "_" + filename;
+        
+        try {
+            if (filename.contains("..")) {
+                // Security check
+                throw new StorageException(
+                        "Cannot store file with relative path outside current directory "
+                                + filename);
+            }
+            
+            Path target = prepareTarget(uniqueFilename);
+            try (InputStream inputStream = file.getInputStream()) {
+                Files.copy(inputStream, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            index.refresh(uniqueFilename, target);
+            eventPublisher.publishEvent(new StorageFileChangedEvent(uniqueFilename));
+            
+            return uniqueFilename;
+        } catch (IOException e) {
+            throw new StorageException("Failed to store file " + filename, e);
+        }
+    }
+    
+    @Override
+    public String store(MultipartFile file, String customFilename) {
+        if (file.isEmpty()) {
+            throw new StorageException("Failed to store empty file");
+        }
+        if (file instanceof StagedMultipartFile staged) {
+            return store(staged.getStagedFile(), customFilename);
+        }
+        
+        String filename = StringUtils.cleanPath(customFilename);
+        
+        try {
+            if (filename.contains("..")) {
+                // Security check
+                throw new StorageException(
+                        "Cannot store file with relative path outside current directory "
+                                + filename);
+            }
+            
+            Path target = prepareTarget(filename);
+            try (InputStream inputStream = file.getInputStream()) {
+                Files.copy(inputStream, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            index.refresh(filename, target);
+            eventPublisher.publishEvent(new StorageFileChangedEvent(filename));
+            
+            return filename;
+        } catch (IOException e) {
+            throw new StorageException("Failed to store file " + filename, e);
+        }
+    }
+
+    @Override
+    public StagedFile stage(InputStream content, String originalFilename) {
+        Path temp = null;
+        boolean staged = false;
+        try {
+            // The final name is not known yet, so spread staging writes over all disks
+            Path root = roots.get(Math.floorMod(nextStagingRoot.getAndIncrement(), roots.size()));
+            temp = Files.createTempFile(root.resolve(STAGING_DIR), "upload-", ".part");
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            long size;
+            try (OutputStream out = new DigestOutputStream(Files.newOutputStream(temp), digest)) {
+                size = content.transferTo(out);
+            }
+            staged = true;
+            return new StagedFile(temp, originalFilename, size, HexFormat.of().formatHex(digest.digest()));
+        } catch (IOException e) {
+            throw new StorageException("Failed to stage file " + originalFilename, e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        } finally {
+            if (!staged) {
+                deleteQuietly(temp);
+            }
+        }
+    }
+
+    @Override
+    public String store(StagedFile file) {
+        String originalFilename = file.originalFilename() != null ? file.originalFilename() : "unknown_file";
+        String filename = StringUtils.cleanPath(originalFilename);
+        return store(file, UUID.randomUUID().toString() + "_" + filename);
+    }
+
+    @Override
+    public String store(StagedFile file, String customFilename) {
+        String filename = StringUtils.cleanPath(customFilename);
+        if (filename.contains("..")) {
+            deleteQuietly(file.path());
+            // Security check
+            throw new StorageException(
+                    "Cannot store file with relative path outside current directory "
+                            + filename);
+        }
+        
+        try {
+            Path target = prepareTarget(filename);
+            try {
+                Files.move(file.path(), target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                // Staged on another disk: copy next to the target first so it still appears atomically
+                Path temp = copyToStaging(file.path(), ring.owner(filename));
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                Files.delete(file.path());
+            }
+            index.refresh(filename, target);
+            eventPublisher.publishEvent(new StorageFileChangedEvent(filename));
+            return filename;
+        } catch (IOException e) {
+            deleteQuietly(file.path());
+            throw new StorageException("Failed to store file " + filename, e);
+        }
+    }
+
+    @Override
+    public void storeDerived(String filename, String name, InputStream content) {
+        String derivedName = derivedName(name);
+        Path root = ring.owner(filename);
+        Path temp = null;
+        try {
+            Path target = derivedDirectory(root, filename).resolve(derivedName);
+            Files.createDirectories(target.getParent());
+            temp = Files.createTempFile(root.resolve(STAGING_DIR), "derived-", ".part");
+            Files.copy(content, temp, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            throw new StorageException("Failed to store " + name + " for " + filename, e);
+        }
+    }
+
+    @Override
+    public Resource loadDerived(String filename, String name) {
+        Path owner = ring.owner(filename);
+        List<Path> searchRoots = new ArrayList<>(roots.size());
+        searchRoots.add(owner);
+        for (Path root : roots) {
+            if (!root.equals(owner)) {
+                searchRoots.add(root);
+            }
+        }
+        String derivedName = derivedName(name);
+        for (Path root : searchRoots) {
+            Path derived = derivedDirectory(root, filename).resolve(derivedName);
+            if (Files.isReadable(derived)) {
+                return new FileSystemResource(derived);
+            }
+        }
+        throw new StorageFileNotFoundException("No " + name + " stored for " + filename);
+    }
+
+    @Override
+    public long appendPartial(String uploadId, long offset, InputStream content) {
+        Path partial = partialPath(uploadId);
+        try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            long length = channel.size();
+            if (length != offset) {
+                throw new UploadOffsetConflictException(
+                        "Upload " + uploadId + " is at offset " + length + ", not " + offset, length);
+            }
+            // Appended in place: whatever arrives before a connection drop is kept for the retry
+            ReadableByteChannel source = Channels.newChannel(content);
+            long transferred;
+            while ((transferred = channel.transferFrom(source, length, APPEND_CHUNK_SIZE)) > 0) {
+                length += transferred;
+            }
+            return length;
+        } catch (IOException e) {
+            throw new StorageException("Failed to append to upload " + uploadId, e);
+        }
+    }
+
+    @Override
+    public long partialLength(String uploadId) {
+        try {
+            Path partial = partialPath(uploadId);
+            return Files.exists(partial) ? Files.size(partial) : 0;
+        } catch (IOException e) {
+            throw new StorageException("Could not read upload " + uploadId, e);
+        }
+    }
+
+    @Override
+    public StagedFile completePartial(String uploadId, String originalFilename) {
+        Path partial = partialPath(uploadId);
+        try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.READ)) {
+            // The chunks arrived over several requests, so the hash is computed in one read pass here
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+            return new StagedFile(partial, originalFilename, channel.size(), HexFormat.of().formatHex(digest.digest()));
+        } catch (NoSuchFileException e) {
+            throw new StorageFileNotFoundException("Nothing was uploaded for " + uploadId, e);
+        } catch (IOException e) {
+            throw new StorageException("Failed to complete upload " + uploadId, e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    @Override
+    public void deletePartial(String uploadId) {
+        try {
+            Files.deleteIfExists(partialPath(uploadId));
+        } catch (IOException e) {
+            throw new StorageException("Could not delete upload " + uploadId, e);
+        }
+    }
+
+    @Override
+    public byte[] loadAsResource(String filename) {
+        try {
+            Path file = locate(filename);
+            if (!Files.exists(file)) {
+                throw new StorageFileNotFoundException("Could not read file: " + filename);
+            }
+            return Files.readAllBytes(file);
+        } catch (IOException e) {
+            throw new StorageFileNotFoundException("Could not read file: " + filename, e);
+        }
+    }
+
+    @Override
+    public Resource loadAsFileResource(String filename) {
+        FileMetadataIndex.Entry entry = index.get(filename)
+                .orElseGet(() -> index.refresh(filename, find(filename)));
+        if (entry == null) {
+            throw new StorageFileNotFoundException("Could not read file: " + filename);
+        }
+        Path file = Optional.ofNullable(pickReplica(filename)).orElse(entry.path());
+        recordRead(filename, file);
+        return entry.toResource(file);
+    }
+
+    @Override
+    public void prefetch(String filename, long length) {
+        FileMetadataIndex.Entry entry = index.get(filename)
+                .orElseGet(() -> index.refresh(filename, find(filename)));
+        if (entry == null) {
+            throw new StorageFileNotFoundException("Could not read file: " + filename);
+        }
+        // Not recorded as a read: a guess about the next request should not make a file look hot
+        try (FileChannel channel = FileChannel.open(entry.path(), StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(READ_AHEAD_CHUNK_SIZE);
+            long position = 0;
+            while (position < length && !Thread.currentThread().isInterrupted()) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), length - position));
+                int read = channel.read(buffer, position);
+                if (read <= 0) {
+                    break;
+                }
+                position += read;
+            }
+        } catch (ClosedByInterruptException e) {
+            // Cancelled
+        } catch (IOException e) {
+            throw new StorageException("Failed to read ahead " + filename, e);
+        }
+    }
+
+    @Override
+    public void delete(String filename) {
+        try {
+            for (Path candidate : candidates(filename)) {
+                FileSystemUtils.deleteRecursively(candidate);
+            }
+            deleteDerived(filename);
+            dropReplica(filename);
+            index.remove(filename);
+            eventPublisher.publishEvent(new StorageFileChangedEvent(filename));
+        } catch (IOException e) {
+            throw new StorageException("Could not delete file: " + filename, e);
+        }
+    }
+
+    /**
+     * @return Whether new files are written to the sharded layout
+     */
+    boolean isSharded() {
+        return "sharded".equalsIgnoreCase(layout);
+    }
+
+    List<Path> getRootLocations() {
+        return roots;
+    }
+
+    /**
+     * @param filename The stored filename
+     * @return Where the file belongs under the current roots and layout
+     */
+    Path canonicalPath(String filename) {
+        return layoutPath(ring.owner(filename), filename, isSharded());
+    }
+
+    /**
+     * Move a file found somewhere under the roots to its canonical path without ever
+     * replacing a file already there. The file stays reachable throughout: it is linked
+     * (or copied, across disks) into place before the original is removed.
+     *
+     * @param source The current location of the file
+     * @throws java.nio.file.FileAlreadyExistsException if the canonical path is already taken
+     */
+    void relocate(Path source) throws IOException {
+        String filename = source.getFileName().toString();
+        Path root = ring.owner(filename);
+        Path target = canonicalPath(filename);
+        Files.createDirectories(target.getParent());
+        if (source.startsWith(root)) {
+            Files.createLink(target, source);
+        } else {
+            Path temp = copyToStaging(source, root);
+            try {
+                Files.createLink(target, temp);
+            } finally {
+                deleteQuietly(temp);
+            }
+        }
+        index.refresh(filename, target);
+        Files.deleteIfExists(source);
+    }
+
+    /**
+     * Get the location of a file under a root: either directly in it, or two directory
+     * levels down named after the first four hex digits of the SHA-256 of its name,
+     * e.g. 3f/a2/song.mp3
+     */
+    private static Path layoutPath(Path root, String filename, boolean sharded) {
+        if (!sharded) {
+            return root.resolve(filename);
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(filename.getBytes(StandardCharsets.UTF_8));
+            HexFormat hex = HexFormat.of();
+            return root.resolve(hex.toHexDigits(digest[0])).resolve(hex.toHexDigits(digest[1])).resolve(filename);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Get the directory holding the files derived from a stored file. It always uses the
+     * sharded layout, so switching layouts leaves it in place.
+     */
+    private static Path derivedDirectory(Path root, String filename) {
+        return layoutPath(root.resolve(DERIVED_DIR), filename, true);
+    }
+
+    private static String derivedName(String name) {
+        String derivedName = StringUtils.cleanPath(name);
+        if (derivedName.isEmpty() || derivedName.contains("..") || derivedName.contains("/")) {
+            throw new StorageException("Invalid derived file name " + name);
+        }
+        return derivedName;
+    }
+
+    private Path partialPath(String uploadId) {
+        String name = StringUtils.cleanPath(uploadId);
+        if (name.contains("..") || name.contains("/")) {
+            throw new StorageException("Invalid upload identifier " + uploadId);
+        }
+        return ring.owner(name).resolve(PARTIAL_DIR).resolve(name + ".part");
+    }
+
+    /**
+     * Every place a file may currently live, canonical path first. Besides the other
+     * layout this includes the other roots, where files wait until a rebalance moves them
+     * to the root that owns them since a root was added.
+     */
+    private List<Path> candidates(String filename) {
+        Path owner = ring.owner(filename);
+        List<Path> candidates = new ArrayList<>(roots.size() * 2);
+        candidates.add(layoutPath(owner, filename, isSharded()));
+        candidates.add(layoutPath(owner, filename, !isSharded()));
+        for (Path root : roots) {
+            if (!root.equals(owner)) {
+                candidates.add(layoutPath(root, filename, isSharded()));
+                candidates.add(layoutPath(root, filename, !isSharded()));
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Find an existing file, preferring a replica for every other read of a hot file so
+     * both disks share the load.
+     */
+    private Path locate(String filename) {
+        Path replica = pickReplica(filename);
+        if (replica != null) {
+            return replica;
+        }
+        return index.get(filename).map(FileMetadataIndex.Entry::path).orElseGet(() -> find(filename));
+    }
+
+    /**
+     * @return The replica to read this time, or null to read the file itself
+     */
+    private Path pickReplica(String filename) {
+        Path replica = replicas.get(filename);
+        if (replica != null && ThreadLocalRandom.current().nextBoolean()) {
+            if (Files.exists(replica)) {
+                return replica;
+            }
+            replicas.remove(filename, replica);
+        }
+        return null;
+    }
+
+    /**
+     * Look for a file in every place it may live, for files the index does not know
+     */
+    private Path find(String filename) {
+        List<Path> candidates = candidates(filename);
+        for (Path candidate : candidates) {
+            if (Files.exists(candidate)) {
+                return candidate;
+            }
+        }
+        // The file may have been moved into place while we were looking
+        return candidates.get(0);
+    }
+
+    /**
+     * Create the directory for a file about to be written and drop any stale copy left
+     * elsewhere, which would otherwise resurface after a layout switch or rebalance.
+     */
+    private Path prepareTarget(String filename) throws IOException {
+        List<Path> candidates = candidates(filename);
+        Path target = candidates.get(0);
+        Files.createDirectories(target.getParent());
+        for (Path stale : candidates.subList(1, candidates.size())) {
+            deleteQuietly(stale);
+        }
+        deleteDerived(filename);
+        dropReplica(filename);
+        return target;
+    }
+
+    private Path copyToStaging(Path source, Path root) throws IOException {
+        Path temp = Files.createTempFile(root.resolve(STAGING_DIR), "move-", ".part");
+        try {
+            Files.copy(source, temp, StandardCopyOption.REPLACE_EXISTING);
+            return temp;
+        } catch (IOException e) {
+            deleteQuietly(temp);
+            throw e;
+        }
+    }
+
+    private void recordRead(String filename, Path file) {
+        if (!replicationEnabled || roots.size() < 2) {
+            return;
+        }
+        sketch.increment(filename);
+        if (replicas.containsKey(filename) || replicas.size() >= replicationMaxFiles
+                || sketch.frequency(filename) < replicationThreshold
+                || replicating.putIfAbsent(filename, Boolean.TRUE) != null) {
+            return;
+        }
+        if (!replicationPermits.tryAcquire()) {
+            replicating.remove(filename);
+            return;
+        }
+        Thread.ofVirtual().name("storage-replication").start(() -> {
+            try {
+                replicate(filename, file);
+            } finally {
+                replicationPermits.release();
+            }
+        });
+    }
+
+    private void replicate(String filename, Path source) {
+        Path root = ring.owners(filename, 2).get(1);
+        Path replica = root.resolve(REPLICAS_DIR).resolve(filename);
+        try {
+            Path temp = copyToStaging(source, root);
+            Files.move(temp, replica, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            if (Boolean.TRUE.equals(replicating.remove(filename))) {
+                replicas.put(filename, replica);
+                log.debug("Replicated hot file {} to {}", filename, root);
+            } else {
+                // Rewritten or deleted while we were copying
+                deleteQuietly(replica);
+            }
+        } catch (IOException e) {
+            replicating.remove(filename);
+            log.warn("Could not replicate {} to {}", filename, root, e);
+        }
+    }
+
+    private void deleteDerived(String filename) throws IOException {
+        // Usually on the owning root, but it may have been written before a root was added
+        for (Path root : roots) {
+            FileSystemUtils.deleteRecursively(derivedDirectory(root, filename));
+        }
+    }
+
+    private void dropReplica(String filename) {
+        replicating.computeIfPresent(filename, (name, valid) -> Boolean.FALSE);
+        Path replica = replicas.remove(filename);
+        if (replica != null) {
+            deleteQuietly(replica);
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Could not delete temporary file {}", path, e);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.daw.groovy.storage;
+
+/**
+ * Approximate access frequency counter (count-min sketch with periodic aging), used to
+ * decide whether a newly requested file is hotter than the one it would evict.
+ *
+ * Counters saturate at 15 and are halved after every sample period so that the sketch
+ * follows shifts in popularity instead of remembering last month's hits.
+ */
+class FrequencySketch {
+
+    private static final int MAX_COUNT = 15;
+    private static final int[] SEEDS = {0x97cb3127, 0xb47dec25, 0x3c6ef372, 0x5ec6d5c1};
+
+    private final int[] table;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(int expectedEntries) {
+        int size = Integer.highestOneBit(Math.max(expectedEntries, 64) * 4 - 1) << 1;
+        this.table = new int[size];
+        this.mask = size - 1;
+        this.sampleSize = size * 10;
+    }
+
+    synchronized void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int i = 0; i < SEEDS.length; i++) {
+            int index = indexOf(hash, i);
+            if (table[index] < MAX_COUNT) {
+                table[index]++;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    synchronized int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = MAX_COUNT;
+        for (int i = 0; i < SEEDS.length; i++) {
+            frequency = Math.min(frequency, table[indexOf(hash, i)]);
+        }
+        return frequency;
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] >>>= 1;
+        }
+        additions /= 2;
+    }
+
+    private int indexOf(int hash, int depth) {
+        int h = (hash ^ SEEDS[depth]) * SEEDS[depth];
+        h ^= h >>> 15;
+        return h & mask;
+    }
+
+    private static int spread(int hash) {
+        hash = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        return (hash >>> 16) ^ hash;
+    }
+}
@@ -0,0 +1,100 @@
+package com.daw.groovy.storage;
+
+import org.springframework.core.io.AbstractResource;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+
+/**
+ * A stored file whose content is memory-mapped off-heap. Slices share the mapping,
+ * so serving a range never copies the file onto the heap.
+ */
+public class MappedResource extends AbstractResource {
+
+    private final String filename;
+    private final MappedByteBuffer buffer;
+    private final long lastModified;
+
+    MappedResource(String filename, MappedByteBuffer buffer, long lastModified) {
+        this.filename = filename;
+        this.buffer = buffer;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Get a read-only view of part of the mapping
+     *
+     * @param position The offset of the first byte
+     * @param length The number of bytes
+     * @return A buffer positioned at the first byte of the region
+     */
+    public ByteBuffer slice(long position, long length) {
+        return buffer.slice(Math.toIntExact(position), Math.toIntExact(length)).asReadOnlyBuffer();
+    }
+
+    /**
+     * Read the whole file into memory now rather than on first access to each page
+     */
+    void load() {
+        buffer.load();
+    }
+
+    @Override
+    public String getDescription() {
+        return "Mapped file [" + filename + "]";
+    }
+
+    @Override
+    public String getFilename() {
+        return filename;
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+
+    @Override
+    public long contentLength() {
+        return buffer.capacity();
+    }
+
+    @Override
+    public long lastModified() {
+        return lastModified;
+    }
+
+    @Override
+    public InputStream getInputStream() {
+        ByteBuffer view = buffer.duplicate().clear();
+        return new InputStream() {
+            @Override
+            public int read() {
+                return view.hasRemaining() ? view.get() & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) {
+                if (!view.hasRemaining()) {
+                    return -1;
+                }
+                int count = Math.min(len, view.remaining());
+                view.get(b, off, count);
+                return count;
+            }
+
+            @Override
+            public long skip(long n) {
+                int count = (int) Math.min(Math.max(n, 0), view.remaining());
+                view.position(view.position() + count);
+                return count;
+            }
+
+            @Override
+            public int available() {
+                return view.remaining();
+            }
+        };
+    }
+}
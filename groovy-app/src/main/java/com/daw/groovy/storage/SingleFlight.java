@@ -0,0 +1,58 @@
+package com.daw.groovy.storage;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Runs at most one call per key at a time: callers that ask for a key while a call for it
+ * is running wait for that call and share its result, or its exception, instead of
+ * repeating the work. Results are not kept once the call is done; caching them is up to
+ * the caller.
+ *
+ * @param <K> The key calls are coalesced on
+ * @param <V> The result of a call
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> calls = new ConcurrentHashMap<>();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * @param key The key of the call
+     * @param call The work to run, unless a call for the key is already running
+     * @return The result of this call, or of the call that was already running
+     */
+    public V run(K key, Supplier<V> call) {
+        CompletableFuture<V> flight = new CompletableFuture<>();
+        CompletableFuture<V> running = calls.putIfAbsent(key, flight);
+        if (running != null) {
+            coalesced.increment();
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        try {
+            V result = call.get();
+            flight.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            flight.completeExceptionally(e);
+            throw e;
+        } finally {
+            calls.remove(key, flight);
+        }
+    }
+
+    /**
+     * @return The number of callers that shared the result of another caller's call
+     */
+    public long coalesced() {
+        return coalesced.sum();
+    }
+}
@@ -0,0 +1,15 @@
+package com.daw.groovy.storage;
+
+import java.nio.file.Path;
+
+/**
+ * Upload content that has been fully written to a temporary file inside the storage
+ * and is waiting to be moved into place
+ *
+ * @param path The temporary file holding the content
+ * @param originalFilename The filename supplied by the client
+ * @param size The content length in bytes
+ * @param sha256 The hex encoded SHA-256 of the content
+ */
+public record StagedFile(Path path, String originalFilename, long size, String sha256) {
+}
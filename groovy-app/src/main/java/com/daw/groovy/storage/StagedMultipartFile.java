@@ -0,0 +1,87 @@
+package com.daw.groovy.storage;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * An uploaded file part that was streamed straight into the storage's staging area
+ * while the request was parsed. Storing it is a rename of the staged file, so the
+ * upload is written to disk exactly once.
+ */
+public class StagedMultipartFile implements MultipartFile {
+
+    private final String name;
+    private final String contentType;
+    private final StagedFile stagedFile;
+
+    public StagedMultipartFile(String name, String contentType, StagedFile stagedFile) {
+        this.name = name;
+        this.contentType = contentType;
+        this.stagedFile = stagedFile;
+    }
+
+    /**
+     * @return The staged file, with the size and SHA-256 computed while it was received
+     */
+    public StagedFile getStagedFile() {
+        return stagedFile;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getOriginalFilename() {
+        return stagedFile.originalFilename();
+    }
+
+    @Override
+    public String getContentType() {
+        return contentType;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return stagedFile.size() == 0;
+    }
+
+    @Override
+    public long getSize() {
+        return stagedFile.size();
+    }
+
+    @Override
+    public byte[] getBytes() throws IOException {
+        return Files.readAllBytes(stagedFile.path());
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        return Files.newInputStream(stagedFile.path());
+    }
+
+    @Override
+    public void transferTo(File dest) throws IOException {
+        transferTo(dest.toPath());
+    }
+
+    @Override
+    public void transferTo(Path dest) throws IOException {
+        Files.move(stagedFile.path(), dest, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Delete the staged file unless it has already been stored
+     */
+    public void discard() throws IOException {
+        Files.deleteIfExists(stagedFile.path());
+    }
+}
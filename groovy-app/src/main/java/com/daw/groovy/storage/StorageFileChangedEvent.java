@@ -0,0 +1,10 @@
+package com.daw.groovy.storage;
+
+/**
+ * Published whenever a stored file is written or deleted, so that anything holding
+ * data derived from it (caches, indexes) can drop it.
+ *
+ * @param filename The name of the file that changed
+ */
+public record StorageFileChangedEvent(String filename) {
+}
@@ -0,0 +1,148 @@
+package com.daw.groovy.storage;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import com.daw.groovy.dto.StorageMigrationDto;
+import com.daw.groovy.enums.MigrationState;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Moves stored files to where the storage expects them while the application keeps
+ * serving them: from the flat into the sharded layout (or back), and to the root that
+ * owns them after a root was added to storage.roots.
+ *
+ * Each file is linked, or copied when it changes disk, into place before it is removed
+ * from its old path, so it is reachable under one of the paths the storage looks at
+ * throughout. Responses that already opened the file are unaffected. A file whose
+ * canonical path is already taken was rewritten after the change, so the old copy is
+ * stale and dropped. Runs can be repeated; files already in place are left alone.
+ */
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class StorageLayoutMigration {
+
+    private static final long PROGRESS_LOG_INTERVAL = 10_000;
+
+    private static final Pattern SHARD_DIR = Pattern.compile("[0-9a-f]{2}");
+
+    private final FileSystemStorageService storage;
+
+    private final AtomicLong moved = new AtomicLong();
+    private final AtomicLong skipped = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    private volatile MigrationState state = MigrationState.IDLE;
+    private volatile LocalDateTime startedAt;
+    private volatile LocalDateTime finishedAt;
+
+    /**
+     * Start migrating in the background
+     *
+     * @return The progress right after starting
+     * @throws IllegalStateException if a migration is already running
+     */
+    public synchronized StorageMigrationDto start() {
+        if (state == MigrationState.RUNNING) {
+            throw new IllegalStateException("A storage migration is already running");
+        }
+        moved.set(0);
+        skipped.set(0);
+        failed.set(0);
+        startedAt = LocalDateTime.now();
+        finishedAt = null;
+        state = MigrationState.RUNNING;
+        Thread.ofVirtual().name("storage-layout-migration").start(this::run);
+        return getStatus();
+    }
+
+    /**
+     * @return The progress of the current or last migration
+     */
+    public StorageMigrationDto getStatus() {
+        return StorageMigrationDto.builder()
+                .state(state)
+                .moved(moved.get())
+                .skipped(skipped.get())
+                .failed(failed.get())
+                .startedAt(startedAt)
+                .finishedAt(finishedAt)
+                .build();
+    }
+
+    private void run() {
+        log.info("Moving stored files in {} to their {} location", storage.getRootLocations(),
+                storage.isSharded() ? "sharded" : "flat");
+        try {
+            for (Path root : storage.getRootLocations()) {
+                migrateDirectory(root, 2);
+            }
+            state = MigrationState.COMPLETED;
+        } catch (IOException | RuntimeException e) {
+            log.error("Storage migration aborted", e);
+            state = MigrationState.FAILED;
+        } finally {
+            finishedAt = LocalDateTime.now();
+        }
+        log.info("Storage migration {}: {} moved, {} skipped, {} failed",
+                state.name().toLowerCase(), moved.get(), skipped.get(), failed.get());
+    }
+
+    /**
+     * Visit the files in a directory and, down to the given depth, in its shard directories.
+     * Streams the entries rather than listing them, so millions of files are fine.
+     */
+    private void migrateDirectory(Path directory, int shardLevels) throws IOException {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory,
+                path -> !path.getFileName().toString().startsWith("."))) {
+            for (Path entry : entries) {
+                if (Files.isRegularFile(entry)) {
+                    migrate(entry);
+                } else if (shardLevels > 0 && Files.isDirectory(entry)
+                        && SHARD_DIR.matcher(entry.getFileName().toString()).matches()) {
+                    migrateDirectory(entry, shardLevels - 1);
+                }
+            }
+        }
+    }
+
+    private void migrate(Path source) {
+        if (source.equals(storage.canonicalPath(source.getFileName().toString()))) {
+            return;
+        }
+        try {
+            storage.relocate(source);
+            moved.incrementAndGet();
+        } catch (FileAlreadyExistsException e) {
+            try {
+                Files.deleteIfExists(source);
+                skipped.incrementAndGet();
+            } catch (IOException deleteFailure) {
+                log.warn("Could not remove stale copy {}", source, deleteFailure);
+                failed.incrementAndGet();
+            }
+        } catch (NoSuchFileException e) {
+            // Deleted while we were looking at it
+            skipped.incrementAndGet();
+        } catch (IOException e) {
+            log.warn("Could not migrate {}", source, e);
+            failed.incrementAndGet();
+        }
+        long done = moved.get() + skipped.get() + failed.get();
+        if (done > 0 && done % PROGRESS_LOG_INTERVAL == 0) {
+            log.info("Storage migration progress: {} moved, {} skipped, {} failed",
+                    moved.get(), skipped.get(), failed.get());
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package com.daw.groovy.storage;
+
+import org.springframework.core.io.Resource;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.daw.groovy.exception.StorageException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Optional;
+
+public interface StorageService {
+    
+    /**
+     * Store a file and return the path where it was stored
+     * 
+     * @param file The file to store
+     * @return The path where the file was stored
+     */
+    String store(MultipartFile file);
+    
+    /**
+     * Store a file with a custom filename and return the path where it was stored
+     * 
+     * @param file The file to store
+     * @param filename The custom filename to use
+     * @return The path where the file was stored
+     */
+    String store(MultipartFile file, String filename);
+    
+    /**
+     * Write content to a temporary file inside the storage, hashing it on the way,
+     * so that it can later be moved into place without another copy
+     * 
+     * @param content The content to write
+     * @param originalFilename The filename supplied by the client
+     * @return The staged file
+     */
+    StagedFile stage(InputStream content, String originalFilename);
+    
+    /**
+     * Move a staged file into the storage and return the name it was stored under
+     * 
+     * @param file The staged file
+     * @return The name the file was stored under
+     */
+    String store(StagedFile file);
+    
+    /**
+     * Move a staged file into the storage under a custom filename
+     * 
+     * @param file The staged file
+     * @param filename The custom filename to use
+     * @return The name the file was stored under
+     */
+    String store(StagedFile file, String filename);
+    
+    /**
+     * Reuse content the storage already holds instead of receiving it again. On success
+     * the caller owns a reference to the returned file, exactly as if it had stored it.
+     * 
+     * @param sha256 The hex SHA-256 of the content
+     * @param size The size of the content in bytes
+     * @return The name of a stored file with that content, or empty if it must be uploaded
+     */
+    default Optional<String> acquireByHash(String sha256, long size) {
+        return Optional.empty();
+    }
+    
+    /**
+     * Store a file derived from a stored file, such as an index, alongside it. Derived
+     * files are removed when the file they belong to is deleted or rewritten.
+     * 
+     * @param filename The stored file the content was derived from
+     * @param name The name of the derived file, unique per stored file
+     * @param content The derived content
+     */
+    void storeDerived(String filename, String name, InputStream content);
+    
+    /**
+     * Load a file derived from a stored file
+     * 
+     * @param filename The stored file the content was derived from
+     * @param name The name of the derived file
+     * @return The derived file as a Resource
+     * @throws com.daw.groovy.exception.StorageFileNotFoundException if it was not stored
+     */
+    Resource loadDerived(String filename, String name);
+    
+    /**
+     * Append content to the partial file of a resumable upload, creating it on the first call
+     * 
+     * @param uploadId The identifier of the upload
+     * @param offset The offset the content starts at, which must be the current length
+     * @param content The content to append
+     * @return The length of the partial file after appending
+     * @throws com.daw.groovy.exception.UploadOffsetConflictException if the offset is not the current length
+     */
+    long appendPartial(String uploadId, long offset, InputStream content);
+    
+    /**
+     * Get how much of a resumable upload has been received
+     * 
+     * @param uploadId The identifier of the upload
+     * @return The length of the partial file, or 0 if nothing was received yet
+     */
+    long partialLength(String uploadId);
+    
+    /**
+     * Turn a finished partial file into a staged file in place, so it can be stored
+     * without copying it again
+     * 
+     * @param uploadId The identifier of the upload
+     * @param originalFilename The filename supplied by the client
+     * @return The staged file
+     */
+    StagedFile completePartial(String uploadId, String originalFilename);
+    
+    /**
+     * Discard the partial file of an abandoned upload
+     * 
+     * @param uploadId The identifier of the upload
+     */
+    void deletePartial(String uploadId);
+    
+    /**
+     * Load a file as a resource
+     * 
+     * @param filename The name of the file to load
+     * @return The file as a resource
+     */
+    byte[] loadAsResource(String filename);
+    
+    /**
+     * Load a file as a streamable resource without reading its content into memory.
+     * File-backed resources expose a {@link java.nio.channels.FileChannel} so callers
+     * can transfer ranges straight to the client.
+     * 
+     * @param filename The name of the file to load
+     * @return The file as a readable resource
+     */
+    Resource loadAsFileResource(String filename);
+    
+    /**
+     * Read the start of a file ahead of a request expected for it, so that request is
+     * served from memory rather than waiting for the disk. Stops early if the calling
+     * thread is interrupted.
+     * 
+     * @param filename The name of the file to read ahead
+     * @param length How many bytes from the start to read
+     */
+    default void prefetch(String filename, long length) {
+        try (InputStream in = loadAsFileResource(filename).getInputStream()) {
+            byte[] buffer = new byte[64 * 1024];
+            long remaining = length;
+            int read;
+            while (remaining > 0 && !Thread.currentThread().isInterrupted()
+                    && (read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining))) > 0) {
+                remaining -= read;
+            }
+        } catch (IOException e) {
+            throw new StorageException("Failed to read ahead " + filename, e);
+        }
+    }
+    
+    /**
+     * Delete a file
+     * 
+     * @param filename The name of the file to delete
+     */
+    void delete(String filename);
+    
+    /**
+     * Whether the content behind a filename can never change, so it may be cached forever
+     * 
+     * @param filename The name of a stored file
+     * @return true if the name is bound to its content
+     */
+    default boolean isImmutable(String filename) {
+        return false;
+    }
+    
+    /**
+     * Initialize the storage
+     */
+    void init();
+}
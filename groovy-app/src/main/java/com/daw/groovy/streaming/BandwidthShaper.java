@@ -0,0 +1,224 @@
+package com.daw.groovy.streaming;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.catalina.connector.ClientAbortException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits how fast media is sent, so a few clients on fast links pulling whole catalogs
+ * cannot take the uplink from everybody else, and drops clients that read so slowly
+ * they only hold on to a thread and an open file.
+ *
+ * Every byte is charged to token buckets for the whole server, the user and the client
+ * address, and a response waits whenever one of them runs dry. The buckets of users and
+ * addresses hold a burst, so a track starts, and the player's buffer fills, at full
+ * speed. The burst refills at their rate rather than with every response, so splitting
+ * a download into many small ranges gains nothing. Clients are measured on the time
+ * spent writing to them, not waiting for tokens; one reading slower than the minimum
+ * rate over a whole window has its connection dropped.
+ *
+ * Shaped responses are copied by the application instead of using sendfile, so shaping
+ * is off unless enabled.
+ */
+@Component
+@Slf4j
+public class BandwidthShaper {
+
+    // Slices are small enough for the buckets to pace a response smoothly
+    private static final int SLICE_SIZE = 16 * 1024;
+
+    // Buckets are kept at least this long after their last use
+    private static final long MIN_IDLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final boolean enabled;
+    private final long userRate;
+    private final long addressRate;
+    private final long burst;
+    private final long minClientRate;
+    private final long slowClientWindowNanos;
+    // Buckets unused for this long are full again, so they can be dropped
+    private final long idleNanos;
+    private final TokenBucket global;
+
+    private final Map<String, TokenBucket> userBuckets = new ConcurrentHashMap<>();
+    private final Map<String, TokenBucket> addressBuckets = new ConcurrentHashMap<>();
+
+    private final LongAdder globalThrottled = new LongAdder();
+    private final LongAdder userThrottled = new LongAdder();
+    private final LongAdder addressThrottled = new LongAdder();
+    private final LongAdder slowClients = new LongAdder();
+
+    public BandwidthShaper(@Value("${streaming.shaping.enabled:false}") boolean enabled,
+                           @Value("${streaming.shaping.global-rate:0}") DataSize globalRate,
+                           @Value("${streaming.shaping.user-rate:2MB}") DataSize userRate,
+                           @Value("${streaming.shaping.address-rate:4MB}") DataSize addressRate,
+                           @Value("${streaming.shaping.burst:1MB}") DataSize burst,
+                           @Value("${streaming.shaping.min-client-rate:4KB}") DataSize minClientRate,
+                           @Value("${streaming.shaping.slow-client-window:30s}") Duration slowClientWindow,
+                           MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.userRate = userRate.toBytes();
+        this.addressRate = addressRate.toBytes();
+        this.burst = burst.toBytes();
+        this.minClientRate = minClientRate.toBytes();
+        this.slowClientWindowNanos = slowClientWindow.toNanos();
+        long slowestRate = Math.min(
+                this.userRate > 0 ? this.userRate : Long.MAX_VALUE,
+                this.addressRate > 0 ? this.addressRate : Long.MAX_VALUE);
+        this.idleNanos = Math.max(MIN_IDLE_NANOS, (long) (this.burst * 1e9 / slowestRate));
+        this.global = globalRate.toBytes() > 0 ? new TokenBucket(globalRate.toBytes(), globalRate.toBytes()) : null;
+        registerMetrics(meterRegistry);
+    }
+
+    /**
+     * @return Whether responses are shaped, in which case they must be written through {@link #shape}
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Wrap a response body so that writing to it is paced by the budgets of the client
+     *
+     * @param out The response body
+     * @param request The request being answered
+     * @return The stream to write the body to; out itself if shaping is disabled
+     */
+    public OutputStream shape(OutputStream out, HttpServletRequest request) {
+        if (!enabled) {
+            return out;
+        }
+        String user = request.getRemoteUser();
+        TokenBucket userBucket = user == null || userRate <= 0 ? null
+                : userBuckets.computeIfAbsent(user, key -> new TokenBucket(userRate, burst));
+        TokenBucket addressBucket = addressRate <= 0 ? null
+                : addressBuckets.computeIfAbsent(request.getRemoteAddr(), key -> new TokenBucket(addressRate, burst));
+        return new ShapedOutputStream(out, userBucket, addressBucket);
+    }
+
+    @Scheduled(fixedDelayString = "PT1M")
+    public void dropIdleBuckets() {
+        long now = System.nanoTime();
+        userBuckets.values().removeIf(bucket -> now - bucket.lastUsed() > idleNanos);
+        addressBuckets.values().removeIf(bucket -> now - bucket.lastUsed() > idleNanos);
+    }
+
+    private void registerMetrics(MeterRegistry registry) {
+        FunctionCounter.builder("groovy.streaming.throttled", globalThrottled, LongAdder::sum)
+                .tag("limit", "global")
+                .baseUnit("bytes")
+                .description("Bytes delayed to stay within a bandwidth budget")
+                .register(registry);
+        FunctionCounter.builder("groovy.streaming.throttled", userThrottled, LongAdder::sum)
+                .tag("limit", "user")
+                .baseUnit("bytes")
+                .description("Bytes delayed to stay within a bandwidth budget")
+                .register(registry);
+        FunctionCounter.builder("groovy.streaming.throttled", addressThrottled, LongAdder::sum)
+                .tag("limit", "address")
+                .baseUnit("bytes")
+                .description("Bytes delayed to stay within a bandwidth budget")
+                .register(registry);
+        FunctionCounter.builder("groovy.streaming.slow-clients", slowClients, LongAdder::sum)
+                .description("Responses dropped because the client read slower than the minimum rate")
+                .register(registry);
+    }
+
+    private final class ShapedOutputStream extends FilterOutputStream {
+
+        private final TokenBucket userBucket;
+        private final TokenBucket addressBucket;
+
+        // Bytes written and time spent writing them since the current window started
+        private long windowBytes;
+        private long windowNanos;
+        private boolean dropped;
+
+        ShapedOutputStream(OutputStream out, TokenBucket userBucket, TokenBucket addressBucket) {
+            super(out);
+            this.userBucket = userBucket;
+            this.addressBucket = addressBucket;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (dropped) {
+                // Some callers, such as FileChannel.transferTo, carry on after a failed write
+                throw new ClientAbortException("Client was dropped for reading too slowly");
+            }
+            while (len > 0) {
+                int slice = Math.min(len, SLICE_SIZE);
+                pace(slice);
+                long started = System.nanoTime();
+                out.write(b, off, slice);
+                checkClientRate(slice, System.nanoTime() - started);
+                off += slice;
+                len -= slice;
+            }
+        }
+
+        private void pace(int bytes) throws IOException {
+            long globalWait = global != null ? global.reserve(bytes) : 0;
+            long userWait = userBucket != null ? userBucket.reserve(bytes) : 0;
+            long addressWait = addressBucket != null ? addressBucket.reserve(bytes) : 0;
+            long wait = Math.max(globalWait, Math.max(userWait, addressWait));
+            if (wait <= 0) {
+                return;
+            }
+            if (wait == globalWait) {
+                globalThrottled.add(bytes);
+            } else if (wait == userWait) {
+                userThrottled.add(bytes);
+            } else {
+                addressThrottled.add(bytes);
+            }
+            try {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while pacing a response");
+            }
+        }
+
+        private void checkClientRate(int bytes, long nanos) throws IOException {
+            if (minClientRate <= 0) {
+                return;
+            }
+            windowBytes += bytes;
+            windowNanos += nanos;
+            if (windowNanos < slowClientWindowNanos) {
+                return;
+            }
+            long rate = (long) (windowBytes / (windowNanos / 1e9));
+            if (rate < minClientRate) {
+                dropped = true;
+                slowClients.increment();
+                log.debug("Dropping a client reading at {} bytes/s", rate);
+                throw new ClientAbortException("Client read at " + rate + " bytes/s, below the minimum of " + minClientRate);
+            }
+            windowBytes = 0;
+            windowNanos = 0;
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com.daw.groovy.streaming;
+
+/**
+ * An inclusive, already validated byte range within a representation
+ *
+ * @param start The first byte offset
+ * @param end The last byte offset (inclusive)
+ */
+public record ByteRange(long start, long end) {
+
+    public long length() {
+        return end - start + 1;
+    }
+
+    /**
+     * @param completeLength The length of the whole representation
+     * @return The Content-Range header value for this range
+     */
+    public String toContentRange(long completeLength) {
+        return "bytes " + start + "-" + end + "/" + completeLength;
+    }
+}
@@ -0,0 +1,125 @@
+package com.daw.groovy.streaming;
+
+import com.daw.groovy.exception.RangeNotSatisfiableException;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Parses HTTP Range headers (RFC 9110 section 14) into validated byte ranges.
+ *
+ * Supports closed ("0-499"), open-ended ("500-") and suffix ("-500") ranges as well as
+ * lists of them. Overlapping ranges and ranges separated by a gap smaller than the
+ * overhead of an extra multipart part are coalesced into one.
+ */
+public final class ByteRangeParser {
+
+    private static final String BYTES_PREFIX = "bytes=";
+
+    // More ranges than this is not a player seeking, so the header is ignored
+    static final int MAX_RANGES = 32;
+
+    // Roughly the size of one multipart/byteranges part header
+    static final long COALESCE_GAP = 80;
+
+    private ByteRangeParser() {
+    }
+
+    /**
+     * Parse a Range header against the length of the selected representation
+     *
+     * @param header The Range header value, may be null
+     * @param length The complete length of the representation
+     * @return The ranges to serve in ascending order, or an empty list if the header must be
+     *         ignored and the full representation served instead
+     * @throws RangeNotSatisfiableException if the header is valid but no range overlaps the content
+     */
+    public static List<ByteRange> parse(String header, long length) {
+        if (header == null) {
+            return List.of();
+        }
+        String value = header.trim();
+        if (!value.regionMatches(true, 0, BYTES_PREFIX, 0, BYTES_PREFIX.length())) {
+            return List.of();
+        }
+
+        String[] specs = value.substring(BYTES_PREFIX.length()).split(",");
+        if (specs.length > MAX_RANGES) {
+            return List.of();
+        }
+
+        List<ByteRange> ranges = new ArrayList<>(specs.length);
+        boolean sawSpec = false;
+        for (String rawSpec : specs) {
+            String spec = rawSpec.trim();
+            if (spec.isEmpty()) {
+                continue;
+            }
+            sawSpec = true;
+
+            int dash = spec.indexOf('-');
+            if (dash < 0) {
+                return List.of();
+            }
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            try {
+                if (first.isEmpty()) {
+                    // Suffix range: the final N bytes of the representation
+                    long suffixLength = parseNonNegative(last);
+                    if (suffixLength > 0 && length > 0) {
+                        ranges.add(new ByteRange(Math.max(0, length - suffixLength), length - 1));
+                    }
+                } else {
+                    long start = parseNonNegative(first);
+                    long end = last.isEmpty() ? Long.MAX_VALUE : parseNonNegative(last);
+                    if (end < start) {
+                        return List.of();
+                    }
+                    if (start < length) {
+                        ranges.add(new ByteRange(start, Math.min(end, length - 1)));
+                    }
+                }
+            } catch (NumberFormatException e) {
+                return List.of();
+            }
+        }
+
+        if (!sawSpec) {
+            return List.of();
+        }
+        if (ranges.isEmpty()) {
+            throw new RangeNotSatisfiableException("None of the requested ranges overlap the content: " + header, length);
+        }
+        return coalesce(ranges);
+    }
+
+    private static long parseNonNegative(String value) {
+        if (value.isEmpty() || !Character.isDigit(value.charAt(0))) {
+            throw new NumberFormatException("Not a byte position: " + value);
+        }
+        return Long.parseLong(value);
+    }
+
+    private static List<ByteRange> coalesce(List<ByteRange> ranges) {
+        if (ranges.size() == 1) {
+            return ranges;
+        }
+        ranges.sort(Comparator.comparingLong(ByteRange::start));
+
+        List<ByteRange> merged = new ArrayList<>(ranges.size());
+        ByteRange current = ranges.get(0);
+        for (int i = 1; i < ranges.size(); i++) {
+            ByteRange next = ranges.get(i);
+            if (next.start() <= current.end() + 1 + COALESCE_GAP) {
+                current = new ByteRange(current.start(), Math.max(current.end(), next.end()));
+            } else {
+                merged.add(current);
+                current = next;
+            }
+        }
+        merged.add(current);
+        return merged;
+    }
+}
@@ -0,0 +1,15 @@
+package com.daw.groovy.streaming;
+
+import org.springframework.http.MediaType;
+
+/**
+ * An image held in memory together with its HTTP validators
+ *
+ * @param filename The stored filename
+ * @param content The image bytes
+ * @param mediaType The image content type
+ * @param entityTag A strong ETag derived from a hash of the content
+ * @param lastModified The modification time of the stored file
+ */
+public record CachedImage(String filename, byte[] content, MediaType mediaType, String entityTag, long lastModified) {
+}
@@ -0,0 +1,125 @@
+package com.daw.groovy.streaming;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Notices clients that go away in the middle of a response, such as a player skipping to
+ * the next track, and stops the response from doing any more work for them.
+ *
+ * The first write that fails ends the response: every later write fails straight away
+ * instead of reaching the socket again, so copies that carry on after a failed write,
+ * like {@link java.nio.channels.FileChannel#transferTo}, stop reading the file, and the
+ * exception unwinds to where the file and its buffers are released. Aborted responses
+ * and the bytes they no longer had to send are counted by kind of response.
+ */
+@Component
+@Slf4j
+public class DisconnectMonitor {
+
+    public static final String MEDIA = "media";
+    public static final String IMAGE = "image";
+    public static final String ARCHIVE = "archive";
+
+    private final Map<String, LongAdder> aborted = Map.of(MEDIA, new LongAdder(), IMAGE, new LongAdder(), ARCHIVE, new LongAdder());
+    private final Map<String, LongAdder> unsent = Map.of(MEDIA, new LongAdder(), IMAGE, new LongAdder(), ARCHIVE, new LongAdder());
+
+    public DisconnectMonitor(MeterRegistry meterRegistry) {
+        registerMetrics(meterRegistry);
+    }
+
+    /**
+     * Wrap a response body to notice when its client goes away
+     *
+     * @param out The response body
+     * @param type The kind of response, {@link #MEDIA}, {@link #IMAGE} or {@link #ARCHIVE}
+     * @param expected How many bytes the response should have, or 0 if not known
+     * @return The stream to write the body to
+     */
+    public OutputStream track(OutputStream out, String type, long expected) {
+        return new TrackedOutputStream(out, type, expected);
+    }
+
+    private void registerMetrics(MeterRegistry registry) {
+        aborted.forEach((type, count) -> FunctionCounter.builder("groovy.streaming.aborted", count, LongAdder::sum)
+                .tag("type", type)
+                .description("Responses abandoned because the client disconnected")
+                .register(registry));
+        unsent.forEach((type, bytes) -> FunctionCounter.builder("groovy.streaming.aborted.unsent", bytes, LongAdder::sum)
+                .tag("type", type)
+                .baseUnit("bytes")
+                .description("Bytes of abandoned responses that were not read or sent")
+                .register(registry));
+    }
+
+    private final class TrackedOutputStream extends FilterOutputStream {
+
+        private final String type;
+        private final long expected;
+        private long written;
+        private IOException failure;
+
+        TrackedOutputStream(OutputStream out, String type, long expected) {
+            super(out);
+            this.type = type;
+            this.expected = expected;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[] {(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            checkOpen();
+            try {
+                out.write(b, off, len);
+            } catch (IOException e) {
+                abort(e);
+                throw e;
+            }
+            written += len;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            checkOpen();
+            try {
+                out.flush();
+            } catch (IOException e) {
+                abort(e);
+                throw e;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            // Closing flushes, which would only fail again once the client is gone
+            if (failure == null) {
+                super.close();
+            }
+        }
+
+        private void checkOpen() throws IOException {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+        private void abort(IOException e) {
+            failure = e;
+            aborted.get(type).increment();
+            unsent.get(type).add(Math.max(expected - written, 0));
+            log.debug("Client went away after {} of {} bytes: {}", written, expected, e.getMessage());
+        }
+    }
+}
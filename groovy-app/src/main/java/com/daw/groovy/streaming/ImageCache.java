@@ -0,0 +1,187 @@
+package com.daw.groovy.streaming;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import com.daw.groovy.storage.SingleFlight;
+import com.daw.groovy.storage.StorageFileChangedEvent;
+import com.daw.groovy.storage.StorageService;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * In-heap cache for small images such as album covers and artist pictures.
+ *
+ * Entries are weighted by their size in bytes and evicted in LRU order once the byte budget
+ * is exceeded. A hit needs no file system access at all; entries are dropped when the
+ * storage reports that the underlying file changed, together with any resized variants
+ * of it. Concurrent misses for the same image share a single read.
+ */
+@Component
+public class ImageCache {
+
+    private final StorageService storageService;
+    private final long maxBytes;
+    private final long maxFileBytes;
+
+    private final LinkedHashMap<Key, CachedImage> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long usedBytes;
+
+    private final SingleFlight<Key, CachedImage> loads = new SingleFlight<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public ImageCache(StorageService storageService,
+                      @Value("${files.image-cache.max-size:32MB}") DataSize maxSize,
+                      @Value("${files.image-cache.max-file-size:2MB}") DataSize maxFileSize,
+                      MeterRegistry meterRegistry) {
+        this.storageService = storageService;
+        this.maxBytes = maxSize.toBytes();
+        this.maxFileBytes = Math.min(maxFileSize.toBytes(), maxBytes);
+        registerMetrics(meterRegistry);
+    }
+
+    /**
+     * @param mediaType The content type of a stored file
+     * @return Whether files of this type are served from the cache
+     */
+    public boolean handles(MediaType mediaType) {
+        return "image".equals(mediaType.getType());
+    }
+
+    /**
+     * Get an image from the cache, loading it from storage on a miss
+     *
+     * @param filename The stored filename
+     * @param mediaType The content type of the image
+     * @return The cached image, or null if it is too large to be cached
+     */
+    public CachedImage get(String filename, MediaType mediaType) throws IOException {
+        return get(new Key(filename, null), mediaType, () -> storageService.loadAsFileResource(filename));
+    }
+
+    /**
+     * Get a variant of an image from the cache, loading it on a miss
+     *
+     * @param filename The stored filename of the original image
+     * @param variant The name of the variant
+     * @param mediaType The content type of the variant
+     * @param loader Loads the variant on a miss
+     * @return The cached variant, or null if it is too large to be cached
+     */
+    public CachedImage get(String filename, String variant, MediaType mediaType,
+                           Supplier<Resource> loader) throws IOException {
+        return get(new Key(filename, variant), mediaType, loader);
+    }
+
+    private CachedImage get(Key key, MediaType mediaType, Supplier<Resource> loader) throws IOException {
+        synchronized (this) {
+            CachedImage cached = entries.get(key);
+            if (cached != null) {
+                hits.increment();
+                return cached;
+            }
+        }
+        try {
+            return loads.run(key, () -> {
+                try {
+                    return load(key, mediaType, loader);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private CachedImage load(Key key, MediaType mediaType, Supplier<Resource> loader) throws IOException {
+        misses.increment();
+        Resource resource = loader.get();
+        if (resource.contentLength() > maxFileBytes) {
+            return null;
+        }
+        byte[] content = resource.getContentAsByteArray();
+        CachedImage image = new CachedImage(key.filename(), content, mediaType, entityTag(content), resource.lastModified());
+        put(key, image);
+        return image;
+    }
+
+    @EventListener
+    public synchronized void onStorageFileChanged(StorageFileChangedEvent event) {
+        Iterator<Map.Entry<Key, CachedImage>> entry = entries.entrySet().iterator();
+        while (entry.hasNext()) {
+            Map.Entry<Key, CachedImage> next = entry.next();
+            if (next.getKey().filename().equals(event.filename())) {
+                usedBytes -= next.getValue().content().length;
+                entry.remove();
+            }
+        }
+    }
+
+    private synchronized void put(Key key, CachedImage image) {
+        CachedImage previous = entries.put(key, image);
+        if (previous != null) {
+            usedBytes -= previous.content().length;
+        }
+        usedBytes += image.content().length;
+
+        Iterator<Map.Entry<Key, CachedImage>> eldest = entries.entrySet().iterator();
+        while (usedBytes > maxBytes && eldest.hasNext()) {
+            usedBytes -= eldest.next().getValue().content().length;
+            eldest.remove();
+        }
+    }
+
+    private String entityTag(byte[] content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content);
+            return "\"" + Base64.getUrlEncoder().withoutPadding().encodeToString(digest) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private synchronized long usedBytes() {
+        return usedBytes;
+    }
+
+    private void registerMetrics(MeterRegistry registry) {
+        FunctionCounter.builder("groovy.image.cache.requests", hits, LongAdder::sum)
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("groovy.image.cache.requests", misses, LongAdder::sum)
+                .tag("result", "miss")
+                .register(registry);
+        FunctionCounter.builder("groovy.image.cache.requests", loads, SingleFlight::coalesced)
+                .tag("result", "coalesced")
+                .register(registry);
+        Gauge.builder("groovy.image.cache.size", this, ImageCache::usedBytes)
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    /**
+     * @param filename The stored filename
+     * @param variant The variant of the image, or null for the original
+     */
+    private record Key(String filename, String variant) {
+    }
+}
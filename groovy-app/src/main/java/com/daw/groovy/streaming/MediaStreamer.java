@@ -0,0 +1,362 @@
+package com.daw.groovy.streaming;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import com.daw.groovy.exception.RangeNotSatisfiableException;
+import com.daw.groovy.storage.MappedResource;
+import com.daw.groovy.storage.StorageService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Writes stored media to the servlet response without buffering it on the heap.
+ *
+ * Full and single-range responses for large files are handed to the container's sendfile
+ * support when available; everything else, including multipart/byteranges responses, is
+ * copied from the file channel with {@link FileChannel#transferTo}, or straight from the
+ * mapping when the storage cache holds the file. When bandwidth shaping is enabled, every
+ * response is copied, paced by the {@link BandwidthShaper}. Copies stop at the first write
+ * after the client disconnects, see {@link DisconnectMonitor}; sendfile transfers are
+ * stopped by the container itself.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class MediaStreamer {
+
+    private static final String SENDFILE_SUPPORTED_ATTR = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTR = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTR = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTR = "org.apache.tomcat.sendfile.end";
+
+    // Below this size a plain write is cheaper than setting up sendfile
+    private static final long SENDFILE_THRESHOLD = 48 * 1024;
+
+    private static final String BYTES_UNIT = "bytes";
+    private static final String CRLF = "\r\n";
+
+    // Content-addressed names never change meaning, so browsers may keep them for good
+    private static final Duration IMMUTABLE_MAX_AGE = Duration.ofDays(365);
+
+    private static final Map<String, MediaType> MEDIA_TYPES = Map.of(
+            "jpg", MediaType.IMAGE_JPEG,
+            "jpeg", MediaType.IMAGE_JPEG,
+            "png", MediaType.IMAGE_PNG,
+            "mp3", MediaType.parseMediaType("audio/mpeg"),
+            "wav", MediaType.parseMediaType("audio/wav"),
+            "ogg", MediaType.parseMediaType("audio/ogg"),
+            "flac", MediaType.parseMediaType("audio/flac"));
+
+    private final StorageService storageService;
+    private final BandwidthShaper bandwidthShaper;
+    private final DisconnectMonitor disconnectMonitor;
+
+    @Value("${files.cache-control.max-age:7d}")
+    private Duration cacheMaxAge;
+
+    @Value("${files.cache-control.immutable:false}")
+    private boolean cacheImmutable;
+
+    /**
+     * Stream a resource, honouring Range and If-Range request headers
+     *
+     * @param resource The resource to stream
+     * @param mediaType The content type of the resource
+     * @param request The current request
+     * @param response The response to write to
+     */
+    public void stream(Resource resource, MediaType mediaType,
+                       HttpServletRequest request, HttpServletResponse response) throws IOException {
+        stream(resource, mediaType, cacheControlFor(resource.getFilename(), mediaType), request, response);
+    }
+
+    /**
+     * Stream a resource with a caching policy decided by the caller, for content whose
+     * cacheability does not follow from its stored name
+     *
+     * @param resource The resource to stream
+     * @param mediaType The content type of the resource
+     * @param cacheControl The Cache-Control policy, or null for none
+     * @param request The current request
+     * @param response The response to write to
+     */
+    public void stream(Resource resource, MediaType mediaType, CacheControl cacheControl,
+                       HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long length = resource.contentLength();
+        long lastModified = resource.lastModified();
+        String entityTag = entityTag(length, lastModified);
+
+        applyCacheControl(cacheControl, response);
+        if (new ServletWebRequest(request, response).checkNotModified(entityTag, lastModified)) {
+            return;
+        }
+        response.setContentType(mediaType.toString());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, BYTES_UNIT);
+
+        List<ByteRange> ranges;
+        try {
+            ranges = requestedRanges(request, entityTag, lastModified, length);
+        } catch (RangeNotSatisfiableException e) {
+            response.setStatus(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, BYTES_UNIT + " */" + e.getCompleteLength());
+            response.setContentLengthLong(0);
+            return;
+        }
+
+        if (ranges.isEmpty()) {
+            response.setStatus(HttpStatus.OK.value());
+            writeSingle(resource, new ByteRange(0, length - 1), request, response);
+        } else if (ranges.size() == 1) {
+            ByteRange range = ranges.get(0);
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            response.setHeader(HttpHeaders.CONTENT_RANGE, range.toContentRange(length));
+            writeSingle(resource, range, request, response);
+        } else {
+            response.setStatus(HttpStatus.PARTIAL_CONTENT.value());
+            writeMultipart(resource, ranges, mediaType, length, request, response);
+        }
+    }
+
+    /**
+     * Stream a resource from a byte offset to its end as a complete response of its own,
+     * for clients that seek by time and do not know the byte offset themselves. Range
+     * headers are not applied on top of the offset.
+     *
+     * @param resource The resource to stream
+     * @param mediaType The content type of the resource
+     * @param offset The byte offset to start at
+     * @param request The current request
+     * @param response The response to write to
+     */
+    public void streamFrom(Resource resource, MediaType mediaType, long offset,
+                           HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long length = resource.contentLength();
+        long lastModified = resource.lastModified();
+        String entityTag = "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified)
+                + "@" + Long.toHexString(offset) + "\"";
+
+        applyCacheControl(cacheControlFor(resource.getFilename(), mediaType), response);
+        if (new ServletWebRequest(request, response).checkNotModified(entityTag, lastModified)) {
+            return;
+        }
+        response.setContentType(mediaType.toString());
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "none");
+        response.setStatus(HttpStatus.OK.value());
+        writeSingle(resource, new ByteRange(offset, length - 1), request, response);
+    }
+
+    /**
+     * Serve an image held in memory, answering conditional requests with 304
+     *
+     * @param image The cached image
+     * @param request The current request
+     * @param response The response to write to
+     */
+    public void stream(CachedImage image, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        applyCacheControl(cacheControlFor(image.filename(), image.mediaType()), response);
+        if (new ServletWebRequest(request, response).checkNotModified(image.entityTag(), image.lastModified())) {
+            return;
+        }
+        response.setContentType(image.mediaType().toString());
+        response.setContentLength(image.content().length);
+        if (!HttpMethod.HEAD.matches(request.getMethod())) {
+            body(DisconnectMonitor.IMAGE, image.content().length, request, response).write(image.content());
+        }
+    }
+
+    /**
+     * Determine the content type to serve for a stored file
+     *
+     * @param filename The stored filename
+     * @return The media type, or application/octet-stream if unknown
+     */
+    public MediaType mediaTypeFor(String filename) {
+        int dot = filename.lastIndexOf('.');
+        MediaType mediaType = dot < 0 ? null : MEDIA_TYPES.get(filename.substring(dot + 1).toLowerCase(Locale.ROOT));
+        return mediaType != null ? mediaType : MediaType.APPLICATION_OCTET_STREAM;
+    }
+
+    private List<ByteRange> requestedRanges(HttpServletRequest request, String entityTag,
+                                            long lastModified, long length) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null || !HttpMethod.GET.matches(request.getMethod())) {
+            return List.of();
+        }
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRangeMatches(ifRange.trim(), entityTag, lastModified)) {
+            // The client's copy is stale, so it gets the whole new representation
+            return List.of();
+        }
+        return ByteRangeParser.parse(rangeHeader, length);
+    }
+
+    private boolean ifRangeMatches(String ifRange, String entityTag, long lastModified) {
+        if (ifRange.startsWith("W/")) {
+            return false;
+        }
+        if (ifRange.startsWith("\"")) {
+            return ifRange.equals(entityTag);
+        }
+        try {
+            long date = ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            return date == lastModified / 1000 * 1000;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return The policy for content whose URL never changes meaning, such as content-addressed files
+     */
+    public CacheControl immutableCacheControl() {
+        return CacheControl.maxAge(IMMUTABLE_MAX_AGE).cachePublic().immutable();
+    }
+
+    /**
+     * @param filename The stored filename the content is served for
+     * @param mediaType The content type
+     * @return The caching policy for the file, or null for none
+     */
+    public CacheControl cacheControlFor(String filename, MediaType mediaType) {
+        if (filename != null && storageService.isImmutable(filename)) {
+            return immutableCacheControl();
+        }
+        if (!"image".equals(mediaType.getType())) {
+            return null;
+        }
+        CacheControl cacheControl = CacheControl.maxAge(cacheMaxAge).cachePublic();
+        if (cacheImmutable) {
+            cacheControl = cacheControl.immutable();
+        }
+        return cacheControl;
+    }
+
+    private void applyCacheControl(CacheControl cacheControl, HttpServletResponse response) {
+        if (cacheControl != null) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+        }
+    }
+
+    private String entityTag(long length, long lastModified) {
+        return "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+    }
+
+    private void writeSingle(Resource resource, ByteRange range,
+                             HttpServletRequest request, HttpServletResponse response) throws IOException {
+        long count = Math.max(range.length(), 0);
+        response.setContentLengthLong(count);
+        if (count == 0 || HttpMethod.HEAD.matches(request.getMethod())) {
+            return;
+        }
+
+        if (resource.isFile() && count >= SENDFILE_THRESHOLD && !bandwidthShaper.isEnabled()
+                && Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTR))) {
+            // The container copies straight from the page cache to the socket once we return
+            request.setAttribute(SENDFILE_FILENAME_ATTR, resource.getFile().getCanonicalPath());
+            request.setAttribute(SENDFILE_START_ATTR, range.start());
+            request.setAttribute(SENDFILE_END_ATTR, range.end() + 1);
+            return;
+        }
+
+        try (FileChannel channel = openChannel(resource)) {
+            writeRegion(resource, channel, range, body(DisconnectMonitor.MEDIA, count, request, response));
+        }
+    }
+
+    private void writeMultipart(Resource resource, List<ByteRange> ranges, MediaType mediaType, long length,
+                                HttpServletRequest request, HttpServletResponse response) throws IOException {
+        String boundary = UUID.randomUUID().toString().replace("-", "");
+        List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+        long contentLength = 0;
+        for (ByteRange range : ranges) {
+            byte[] partHeader = (CRLF + "--" + boundary + CRLF
+                    + HttpHeaders.CONTENT_TYPE + ": " + mediaType + CRLF
+                    + HttpHeaders.CONTENT_RANGE + ": " + range.toContentRange(length) + CRLF + CRLF)
+                    .getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(partHeader);
+            contentLength += partHeader.length + range.length();
+        }
+        byte[] closing = (CRLF + "--" + boundary + "--" + CRLF).getBytes(StandardCharsets.US_ASCII);
+        contentLength += closing.length;
+
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+
+        try (FileChannel channel = openChannel(resource)) {
+            OutputStream out = body(DisconnectMonitor.MEDIA, contentLength, request, response);
+            for (int i = 0; i < ranges.size(); i++) {
+                out.write(partHeaders.get(i));
+                writeRegion(resource, channel, ranges.get(i), out);
+            }
+            out.write(closing);
+        }
+    }
+
+    private OutputStream body(String type, long length,
+                              HttpServletRequest request, HttpServletResponse response) throws IOException {
+        return bandwidthShaper.shape(disconnectMonitor.track(response.getOutputStream(), type, length), request);
+    }
+
+    private FileChannel openChannel(Resource resource) throws IOException {
+        return resource.isFile() ? FileChannel.open(resource.getFile().toPath(), StandardOpenOption.READ) : null;
+    }
+
+    private void writeRegion(Resource resource, FileChannel channel, ByteRange range, OutputStream out) throws IOException {
+        if (resource instanceof MappedResource mapped) {
+            ByteBuffer region = mapped.slice(range.start(), range.length());
+            WritableByteChannel target = Channels.newChannel(out);
+            while (region.hasRemaining()) {
+                target.write(region);
+            }
+            return;
+        }
+        if (channel == null) {
+            try (InputStream in = resource.getInputStream()) {
+                StreamUtils.copyRange(in, out, range.start(), range.end());
+            }
+            return;
+        }
+
+        long written = 0;
+        long count = range.length();
+        WritableByteChannel target = Channels.newChannel(out);
+        while (written < count) {
+            long transferred = channel.transferTo(range.start() + written, count - written, target);
+            if (transferred <= 0) {
+                // The file shrank underneath us; the declared length can no longer be honoured
+                throw new IOException("Unexpected end of file after " + written + " of " + count + " bytes");
+            }
+            written += transferred;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.daw.groovy.streaming;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+
+import com.daw.groovy.entity.Song;
+import com.daw.groovy.exception.StorageFileNotFoundException;
+import com.daw.groovy.mediaserver.MediaFile;
+import com.daw.groovy.mediaserver.MediaLibrary;
+import com.daw.groovy.repository.SongRepository;
+import com.daw.groovy.storage.MappedResource;
+import com.daw.groovy.storage.StorageService;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Optional;
+
+/**
+ * Lets the media server serve from storage, with the content types, caching policies and
+ * entity tags of the API. Images are served from the image cache, with its content hash
+ * tags, and other files held by the storage cache from their mapping.
+ */
+@RequiredArgsConstructor
+public class StorageMediaLibrary implements MediaLibrary {
+
+    private final StorageService storageService;
+    private final SongRepository songRepository;
+    private final MediaStreamer mediaStreamer;
+    private final ImageCache imageCache;
+
+    @Override
+    public Optional<MediaFile> file(String filename) throws IOException {
+        MediaType mediaType = mediaStreamer.mediaTypeFor(filename);
+        CacheControl cacheControl = mediaStreamer.cacheControlFor(filename, mediaType);
+        String cacheControlHeader = cacheControl != null ? cacheControl.getHeaderValue() : null;
+        Resource resource;
+        try {
+            if (imageCache.handles(mediaType)) {
+                CachedImage image = imageCache.get(filename, mediaType);
+                if (image != null) {
+                    return Optional.of(MediaFile.inMemory(ByteBuffer.wrap(image.content()).asReadOnlyBuffer(),
+                            image.lastModified(), mediaType.toString(), cacheControlHeader, image.entityTag()));
+                }
+            }
+            resource = storageService.loadAsFileResource(filename);
+        } catch (StorageFileNotFoundException e) {
+            return Optional.empty();
+        }
+        if (resource instanceof MappedResource mapped) {
+            return Optional.of(MediaFile.inMemory(mapped.slice(0, mapped.contentLength()), mapped.lastModified(),
+                    mediaType.toString(), cacheControlHeader));
+        }
+        return Optional.of(MediaFile.onDisk(resource.getFile().toPath(), resource.contentLength(),
+                resource.lastModified(), mediaType.toString(), cacheControlHeader));
+    }
+
+    @Override
+    public Optional<MediaFile> songAudio(long songId) throws IOException {
+        // Only the path is read, so no session has to stay open for the song's relations
+        Optional<String> filePath = songRepository.findById(songId)
+                .map(Song::getFilePath)
+                .filter(path -> !path.isEmpty());
+        return filePath.isPresent() ? file(filePath.get()) : Optional.empty();
+    }
+}
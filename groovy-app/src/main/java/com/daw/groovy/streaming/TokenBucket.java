@@ -0,0 +1,50 @@
+package com.daw.groovy.streaming;
+
+/**
+ * Token bucket for a byte rate. Callers reserve what they are about to send and wait the
+ * time the bucket returns, so a reservation may overdraw the bucket and later callers
+ * wait for the debt to be paid back: throughput averages the rate, bursts are limited to
+ * the capacity, and nobody spins.
+ */
+class TokenBucket {
+
+    private final double bytesPerNano;
+    private final double capacity;
+    private double tokens;
+    private long refilledAt;
+    private volatile long lastUsed;
+
+    /**
+     * @param bytesPerSecond The sustained rate
+     * @param capacity The largest burst, in bytes; the bucket starts full
+     */
+    TokenBucket(long bytesPerSecond, long capacity) {
+        this.bytesPerNano = bytesPerSecond / 1e9;
+        this.capacity = capacity;
+        this.tokens = capacity;
+        this.refilledAt = System.nanoTime();
+        this.lastUsed = refilledAt;
+    }
+
+    /**
+     * Take tokens for bytes about to be sent
+     *
+     * @param bytes The number of bytes
+     * @return How long to wait before sending them, in nanoseconds
+     */
+    synchronized long reserve(long bytes) {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - refilledAt) * bytesPerNano);
+        refilledAt = now;
+        lastUsed = now;
+        tokens -= bytes;
+        return tokens >= 0 ? 0 : (long) (-tokens / bytesPerNano);
+    }
+
+    /**
+     * @return When tokens were last reserved, in {@link System#nanoTime()} terms
+     */
+    long lastUsed() {
+        return lastUsed;
+    }
+}
@@ -0,0 +1,21 @@
+package com.daw.groovy.streaming;
+
+import org.springframework.core.io.Resource;
+
+import java.util.List;
+
+/**
+ * Stored files to download together as one ZIP
+ *
+ * @param filename The name to offer the download under
+ * @param entries The files, in archive order
+ */
+public record ZipArchive(String filename, List<Entry> entries) {
+
+    /**
+     * @param name The path of the file inside the archive
+     * @param resource The file content
+     */
+    public record Entry(String name, Resource resource) {
+    }
+}
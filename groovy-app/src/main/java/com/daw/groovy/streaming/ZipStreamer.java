@@ -0,0 +1,78 @@
+package com.daw.groovy.streaming;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes a ZIP of stored files straight to the response as it is built.
+ *
+ * Audio and images are already compressed, so entries are STORED: the archive costs no
+ * CPU to build and unpacks with any tool. A STORED entry must declare its CRC-32 before
+ * its data, so each file is read twice, once for the checksum and once to copy it; no
+ * temporary file is written and memory use does not grow with the archive.
+ */
+@Component
+@RequiredArgsConstructor
+public class ZipStreamer {
+
+    public static final String APPLICATION_ZIP = "application/zip";
+
+    private final BandwidthShaper bandwidthShaper;
+    private final DisconnectMonitor disconnectMonitor;
+
+    /**
+     * @param archive The files to send
+     * @param request The request being answered
+     * @param response The response to write the archive to
+     */
+    public void stream(ZipArchive archive, HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(APPLICATION_ZIP);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                .filename(archive.filename(), StandardCharsets.UTF_8)
+                .build()
+                .toString());
+
+        long totalSize = 0;
+        for (ZipArchive.Entry file : archive.entries()) {
+            totalSize += file.resource().contentLength();
+        }
+        OutputStream out = disconnectMonitor.track(response.getOutputStream(), DisconnectMonitor.ARCHIVE, totalSize);
+        try (ZipOutputStream zip = new ZipOutputStream(bandwidthShaper.shape(out, request))) {
+            zip.setMethod(ZipOutputStream.STORED);
+            for (ZipArchive.Entry file : archive.entries()) {
+                long size = file.resource().contentLength();
+                ZipEntry entry = new ZipEntry(file.name());
+                entry.setSize(size);
+                entry.setCompressedSize(size);
+                entry.setCrc(crc(file));
+                entry.setTime(file.resource().lastModified());
+
+                zip.putNextEntry(entry);
+                try (InputStream in = file.resource().getInputStream()) {
+                    in.transferTo(zip);
+                }
+                zip.closeEntry();
+            }
+        }
+    }
+
+    private static long crc(ZipArchive.Entry file) throws IOException {
+        try (CheckedInputStream in = new CheckedInputStream(file.resource().getInputStream(), new CRC32())) {
+            in.transferTo(OutputStream.nullOutputStream());
+            return in.getChecksum().getValue();
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package com.daw.groovy.upload;
+
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.multipart.MultipartException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Incremental reader for a multipart/form-data body (RFC 7578).
+ *
+ * Parts are handed out one at a time and their content is read straight off the request
+ * stream, so nothing is buffered beyond a fixed window regardless of the upload size.
+ * Delimiters are found with a Boyer-Moore-Horspool search over that window.
+ */
+class MultipartStream {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_HEADER_SIZE = 16 * 1024;
+    private static final byte CR = '\r';
+    private static final byte LF = '\n';
+    private static final byte DASH = '-';
+
+    private final InputStream in;
+    private final byte[] delimiter;
+    private final int[] shift = new int[256];
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int head;
+    private int tail;
+    // No delimiter starts before this index, so searches resume here instead of rescanning
+    private int scanFrom;
+    private boolean eof;
+    private boolean finished;
+    private PartInputStream currentPart;
+
+    MultipartStream(InputStream in, String boundary) {
+        this.in = in;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.US_ASCII);
+        if (delimiter.length > BUFFER_SIZE / 2) {
+            throw new MultipartException("Multipart boundary too long");
+        }
+        for (int i = 0; i < shift.length; i++) {
+            shift[i] = delimiter.length;
+        }
+        for (int i = 0; i < delimiter.length - 1; i++) {
+            shift[delimiter[i] & 0xff] = delimiter.length - 1 - i;
+        }
+        // The first delimiter is not preceded by a line break, so pretend there was one
+        buffer[tail++] = CR;
+        buffer[tail++] = LF;
+        currentPart = new PartInputStream();
+    }
+
+    /**
+     * Advance to the next part, skipping whatever is left of the current one
+     *
+     * @return The next part, or null once the closing delimiter has been read
+     */
+    Part nextPart() throws IOException {
+        if (finished) {
+            return null;
+        }
+        currentPart.skipRemaining();
+        if (!ensure(2)) {
+            throw new MultipartException("Multipart body ended without a closing delimiter");
+        }
+        if (buffer[head] == DASH && buffer[head + 1] == DASH) {
+            finished = true;
+            return null;
+        }
+        skipLineEnd();
+
+        HttpHeaders headers = readHeaders();
+        currentPart = new PartInputStream();
+        return new Part(headers, currentPart);
+    }
+
+    private void skipLineEnd() throws IOException {
+        // Linear whitespace may follow the delimiter before the line break
+        while (ensure(1) && (buffer[head] == ' ' || buffer[head] == '\t')) {
+            head++;
+        }
+        if (!ensure(2) || buffer[head] != CR || buffer[head + 1] != LF) {
+            throw new MultipartException("Malformed multipart delimiter line");
+        }
+        head += 2;
+    }
+
+    private HttpHeaders readHeaders() throws IOException {
+        HttpHeaders headers = new HttpHeaders();
+        int consumed = 0;
+        while (true) {
+            int lineEnd = -1;
+            while (lineEnd < 0) {
+                for (int i = head; i + 1 < tail; i++) {
+                    if (buffer[i] == CR && buffer[i + 1] == LF) {
+                        lineEnd = i;
+                        break;
+                    }
+                }
+                if (lineEnd < 0 && tail - head > MAX_HEADER_SIZE) {
+                    throw new MultipartException("Multipart part headers too large");
+                }
+                if (lineEnd < 0 && !fill()) {
+                    throw new MultipartException("Multipart body ended inside part headers");
+                }
+            }
+            String line = new String(buffer, head, lineEnd - head, StandardCharsets.UTF_8);
+            consumed += lineEnd + 2 - head;
+            head = lineEnd + 2;
+            if (consumed > MAX_HEADER_SIZE) {
+                throw new MultipartException("Multipart part headers too large");
+            }
+            if (line.isEmpty()) {
+                return headers;
+            }
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                headers.add(line.substring(0, colon).trim(), line.substring(colon + 1).trim());
+            }
+        }
+    }
+
+    /**
+     * Make sure at least count unread bytes are buffered, unless the stream ends first
+     */
+    private boolean ensure(int count) throws IOException {
+        while (tail - head < count) {
+            if (!fill()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        if (head > 0) {
+            System.arraycopy(buffer, head, buffer, 0, tail - head);
+            tail -= head;
+            scanFrom = Math.max(0, scanFrom - head);
+            head = 0;
+        }
+        int read = in.read(buffer, tail, buffer.length - tail);
+        if (read < 0) {
+            eof = true;
+            return false;
+        }
+        tail += read;
+        return true;
+    }
+
+    /**
+     * @return The index of the next delimiter in the buffered window, or -1
+     */
+    private int findDelimiter() {
+        int last = delimiter.length - 1;
+        int i = Math.max(head, scanFrom);
+        while (i + last < tail) {
+            int j = last;
+            while (buffer[i + j] == delimiter[j]) {
+                if (j == 0) {
+                    scanFrom = i;
+                    return i;
+                }
+                j--;
+            }
+            i += shift[buffer[i + last] & 0xff];
+        }
+        scanFrom = Math.max(head, tail - last);
+        return -1;
+    }
+
+    /**
+     * A single part of the body
+     *
+     * @param headers The part headers
+     * @param content The part content, ending at the next delimiter
+     */
+    record Part(HttpHeaders headers, InputStream content) {
+
+        ContentDisposition disposition() {
+            String value = headers.getFirst(HttpHeaders.CONTENT_DISPOSITION);
+            return value != null ? ContentDisposition.parse(value) : ContentDisposition.empty();
+        }
+    }
+
+    private class PartInputStream extends InputStream {
+
+        private boolean done;
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int read = read(single, 0, 1);
+            return read < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (done) {
+                return -1;
+            }
+            if (len == 0) {
+                return 0;
+            }
+            while (true) {
+                int found = findDelimiter();
+                int available;
+                if (found >= 0) {
+                    available = found - head;
+                    if (available == 0) {
+                        head += delimiter.length;
+                        done = true;
+                        return -1;
+                    }
+                } else {
+                    // Anything that could be the start of a delimiter has to wait for more input
+                    available = tail - head - (delimiter.length - 1);
+                    if (available <= 0) {
+                        if (!fill()) {
+                            throw new MultipartException("Multipart body ended inside a part");
+                        }
+                        continue;
+                    }
+                }
+                int count = Math.min(len, available);
+                System.arraycopy(buffer, head, b, off, count);
+                head += count;
+                return count;
+            }
+        }
+
+        void skipRemaining() throws IOException {
+            byte[] discard = new byte[8192];
+            while (read(discard, 0, discard.length) >= 0) {
+                // drain
+            }
+        }
+    }
+}
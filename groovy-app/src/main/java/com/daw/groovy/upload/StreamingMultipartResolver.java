@@ -0,0 +1,159 @@
+package com.daw.groovy.upload;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+import org.springframework.web.multipart.MultipartException;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.multipart.MultipartHttpServletRequest;
+import org.springframework.web.multipart.MultipartResolver;
+import org.springframework.web.multipart.support.DefaultMultipartHttpServletRequest;
+
+import com.daw.groovy.storage.StagedFile;
+import com.daw.groovy.storage.StagedMultipartFile;
+import com.daw.groovy.storage.StorageService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Multipart resolver that streams file parts straight into the storage's staging area
+ * while the request body is parsed, instead of letting the container spool them to a
+ * temporary file first.
+ *
+ * Each file is hashed as it arrives. With a single storage root, storing it afterwards
+ * is an atomic rename and every uploaded byte is written once. With several roots the
+ * final name, and so the disk it belongs on, is only chosen after staging, so staging
+ * is spread over all roots and a file staged on another disk is copied once more.
+ * Size limits are enforced while reading. Form fields are kept in memory. Staged files
+ * that the handler did not store are deleted once the request completes.
+ */
+@Slf4j
+public class StreamingMultipartResolver implements MultipartResolver {
+
+    // Form fields carry JSON metadata and short strings, never file content
+    private static final long MAX_FIELD_SIZE = 1024 * 1024;
+
+    private final StorageService storageService;
+    private final long maxFileSize;
+    private final long maxRequestSize;
+
+    public StreamingMultipartResolver(StorageService storageService, long maxFileSize, long maxRequestSize) {
+        this.storageService = storageService;
+        this.maxFileSize = maxFileSize;
+        this.maxRequestSize = maxRequestSize;
+    }
+
+    @Override
+    public boolean isMultipart(HttpServletRequest request) {
+        String contentType = request.getContentType();
+        return contentType != null && contentType.toLowerCase().startsWith(MediaType.MULTIPART_FORM_DATA_VALUE);
+    }
+
+    @Override
+    public MultipartHttpServletRequest resolveMultipart(HttpServletRequest request) throws MultipartException {
+        if (maxRequestSize >= 0 && request.getContentLengthLong() > maxRequestSize) {
+            // Declared too large: reject before reading a single byte
+            throw new MaxUploadSizeExceededException(maxRequestSize);
+        }
+        String boundary = MediaType.parseMediaType(request.getContentType()).getParameter("boundary");
+        if (boundary == null || boundary.isEmpty()) {
+            throw new MultipartException("Multipart request without a boundary");
+        }
+        if (boundary.length() > 1 && boundary.startsWith("\"") && boundary.endsWith("\"")) {
+            boundary = boundary.substring(1, boundary.length() - 1);
+        }
+
+        MultiValueMap<String, MultipartFile> files = new LinkedMultiValueMap<>();
+        Map<String, String[]> parameters = new LinkedHashMap<>();
+        Map<String, String> parameterContentTypes = new HashMap<>();
+        try {
+            InputStream body = new SizeLimitedInputStream(request.getInputStream(), maxRequestSize);
+            MultipartStream stream = new MultipartStream(body, boundary);
+            MultipartStream.Part part;
+            while ((part = stream.nextPart()) != null) {
+                ContentDisposition disposition = part.disposition();
+                String name = disposition.getName();
+                if (name == null) {
+                    continue;
+                }
+                String contentType = part.headers().getFirst(HttpHeaders.CONTENT_TYPE);
+                String filename = disposition.getFilename();
+                if (filename != null) {
+                    if (filename.isEmpty()) {
+                        // A file input left empty by the browser
+                        continue;
+                    }
+                    StagedFile staged = storageService.stage(new SizeLimitedInputStream(part.content(), maxFileSize), filename);
+                    files.add(name, new StagedMultipartFile(name, contentType, staged));
+                } else {
+                    byte[] value = StreamUtils.copyToByteArray(new SizeLimitedInputStream(part.content(), MAX_FIELD_SIZE));
+                    parameters.merge(name, new String[] {new String(value, charset(contentType))}, this::append);
+                    if (contentType != null) {
+                        parameterContentTypes.put(name, contentType);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            discard(files);
+            throw new MultipartException("Failed to parse multipart request", e);
+        } catch (RuntimeException e) {
+            discard(files);
+            throw e;
+        }
+        return new DefaultMultipartHttpServletRequest(request, files, parameters, parameterContentTypes);
+    }
+
+    @Override
+    public void cleanupMultipart(MultipartHttpServletRequest request) {
+        discard(request.getMultiFileMap());
+    }
+
+    private void discard(MultiValueMap<String, MultipartFile> files) {
+        for (List<MultipartFile> values : files.values()) {
+            for (MultipartFile file : values) {
+                if (file instanceof StagedMultipartFile staged) {
+                    try {
+                        staged.discard();
+                    } catch (IOException e) {
+                        log.warn("Could not delete staged upload {}", staged.getStagedFile().path(), e);
+                    }
+                }
+            }
+        }
+    }
+
+    private String[] append(String[] existing, String[] added) {
+        String[] merged = new String[existing.length + added.length];
+        System.arraycopy(existing, 0, merged, 0, existing.length);
+        System.arraycopy(added, 0, merged, existing.length, added.length);
+        return merged;
+    }
+
+    private Charset charset(String contentType) {
+        if (contentType != null) {
+            try {
+                Charset charset = MediaType.parseMediaType(contentType).getCharset();
+                if (charset != null) {
+                    return charset;
+                }
+            } catch (InvalidMediaTypeException e) {
+                log.debug("Ignoring invalid multipart field content type {}", contentType);
+            }
+        }
+        return StandardCharsets.UTF_8;
+    }
+}
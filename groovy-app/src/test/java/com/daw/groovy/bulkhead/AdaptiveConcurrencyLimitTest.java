@@ -0,0 +1,177 @@
+package com.daw.groovy.bulkhead;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveConcurrencyLimitTest {
+
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(2);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Test
+    void growsByTheSquareRootWhileLatencyHolds() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 4, 150, 1.0, 0.5);
+        complete(limit, 100, FAST);
+
+        saturateAndReleaseOne(limit, FAST);
+
+        assertThat(limit.limit()).isEqualTo((int) (20 + Math.sqrt(20)));
+    }
+
+    @Test
+    void shrinksAtMostByHalfWhenLatencyRises() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 4, 150, 1.0, 0.5);
+        complete(limit, 100, FAST);
+
+        // Fifty times the usual latency would call for a far smaller limit, but the gradient stops at 0.5
+        saturateAndReleaseOne(limit, SLOW);
+
+        assertThat(limit.limit()).isEqualTo((int) (20 * 0.5 + Math.sqrt(20)));
+    }
+
+    @Test
+    void appliesOnlyPartOfEachAdjustmentWhenSmoothed() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 4, 150, 0.2, 0.5);
+        complete(limit, 100, FAST);
+
+        saturateAndReleaseOne(limit, SLOW);
+
+        assertThat(limit.limit()).isEqualTo((int) (20 * 0.8 + (20 * 0.5 + Math.sqrt(20)) * 0.2));
+    }
+
+    @Test
+    void staysWithinItsBounds() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 10, 150, 1.0, 0.5);
+        complete(limit, 100, FAST);
+        for (int i = 0; i < 50; i++) {
+            saturate(limit, FAST);
+        }
+        assertThat(limit.limit()).isEqualTo(150);
+
+        for (int i = 0; i < 150; i++) {
+            assertThat(limit.tryAcquire(Priority.NORMAL)).isTrue();
+        }
+        for (int i = 0; i < 20; i++) {
+            limit.release(Priority.NORMAL, SLOW);
+        }
+        assertThat(limit.limit()).isEqualTo(10);
+    }
+
+    @Test
+    void ignoresLatencyWhileFarBelowTheLimit() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 4, 150, 1.0, 0.5);
+        complete(limit, 100, FAST);
+
+        complete(limit, 100, SLOW);
+
+        assertThat(limit.limit()).isEqualTo(20);
+    }
+
+    @Test
+    void bringsTheBaselineBackDownAfterALongSlowStretch() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 4, 150, 1.0, 0.5);
+        complete(limit, 2000, SLOW);
+        complete(limit, 200, FAST);
+
+        // Measured against the slow stretch this would look fast; against the recovered baseline it is slow
+        saturateAndReleaseOne(limit, 20 * FAST);
+
+        assertThat(limit.limit()).isLessThan(20);
+    }
+
+    @Test
+    void letsBulkRequestsUseOnlyTheirShare() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 4, 150, 1.0, 0.5);
+        for (int i = 0; i < 10; i++) {
+            assertThat(limit.tryAcquire(Priority.BULK)).isTrue();
+        }
+        assertThat(limit.tryAcquire(Priority.BULK)).isFalse();
+
+        for (int i = 0; i < 10; i++) {
+            assertThat(limit.tryAcquire(Priority.NORMAL)).isTrue();
+        }
+        assertThat(limit.tryAcquire(Priority.NORMAL)).isFalse();
+        assertThat(limit.rejected(Priority.BULK)).isEqualTo(1);
+        assertThat(limit.rejected(Priority.NORMAL)).isEqualTo(1);
+    }
+
+    @Test
+    void letsOneBulkRequestThroughEvenWithATinyShare() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 4, 150, 1.0, 0.1);
+
+        assertThat(limit.tryAcquire(Priority.BULK)).isTrue();
+        assertThat(limit.tryAcquire(Priority.BULK)).isFalse();
+    }
+
+    @Test
+    void alwaysLetsCriticalRequestsThroughWithoutCountingThem() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 4, 150, 1.0, 0.5);
+        for (int i = 0; i < 4; i++) {
+            assertThat(limit.tryAcquire(Priority.NORMAL)).isTrue();
+        }
+
+        assertThat(limit.tryAcquire(Priority.CRITICAL)).isTrue();
+        assertThat(limit.inflight()).isEqualTo(4);
+        limit.release(Priority.CRITICAL, SLOW);
+        assertThat(limit.inflight()).isEqualTo(4);
+        assertThat(limit.tryAcquire(Priority.NORMAL)).isFalse();
+    }
+
+    @Test
+    void keepsTheLimitUnderSlowCriticalTraffic() {
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(20, 4, 150, 1.0, 0.5);
+        complete(limit, 100, FAST);
+        for (int i = 0; i < 20; i++) {
+            limit.tryAcquire(Priority.NORMAL);
+        }
+
+        // A burst of logins, each hashing a password while the catalog requests wait on nothing
+        for (int i = 0; i < 200; i++) {
+            assertThat(limit.tryAcquire(Priority.CRITICAL)).isTrue();
+            limit.release(Priority.CRITICAL, SLOW);
+        }
+        assertThat(limit.limit()).isEqualTo(20);
+
+        for (int i = 0; i < 20; i++) {
+            limit.release(Priority.NORMAL, FAST);
+        }
+        assertThat(limit.limit()).isGreaterThan(20);
+    }
+
+    /**
+     * Start as many requests as the limit allows, then end them all
+     */
+    private static void saturate(AdaptiveConcurrencyLimit limit, long latencyNanos) {
+        int requests = limit.limit();
+        for (int i = 0; i < requests; i++) {
+            assertThat(limit.tryAcquire(Priority.NORMAL)).isTrue();
+        }
+        for (int i = 0; i < requests; i++) {
+            limit.release(Priority.NORMAL, latencyNanos);
+        }
+    }
+
+    /**
+     * Start as many requests as the limit allows and end one of them, so the limit moves once
+     */
+    private static void saturateAndReleaseOne(AdaptiveConcurrencyLimit limit, long latencyNanos) {
+        int requests = limit.limit();
+        for (int i = 0; i < requests; i++) {
+            assertThat(limit.tryAcquire(Priority.NORMAL)).isTrue();
+        }
+        limit.release(Priority.NORMAL, latencyNanos);
+    }
+
+    /**
+     * Run requests one at a time, which feeds the latency averages without moving the limit
+     */
+    private static void complete(AdaptiveConcurrencyLimit limit, int requests, long latencyNanos) {
+        for (int i = 0; i < requests; i++) {
+            assertThat(limit.tryAcquire(Priority.NORMAL)).isTrue();
+            limit.release(Priority.NORMAL, latencyNanos);
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.daw.groovy.bulkhead;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AdaptiveLimitFilterTest {
+
+    private final AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(4, 4, 4, 1.0, 0.5);
+    private final AdaptiveLimitFilter filter = new AdaptiveLimitFilter(limit, 1, new ObjectMapper().findAndRegisterModules());
+
+    @Test
+    void releasesWhatItLetThrough() throws Exception {
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = filter(new MockHttpServletRequest("GET", "/api/songs/1"), chain);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(chain.getRequest()).isNotNull();
+        assertThat(limit.inflight()).isZero();
+    }
+
+    @Test
+    void shedsCatalogRequestsBeyondTheLimit() throws Exception {
+        fill();
+
+        MockFilterChain chain = new MockFilterChain();
+        MockHttpServletResponse response = filter(new MockHttpServletRequest("GET", "/api/songs/1"), chain);
+
+        assertThat(response.getStatus()).isEqualTo(503);
+        assertThat(response.getHeader("Retry-After")).isEqualTo("1");
+        assertThat(chain.getRequest()).isNull();
+        assertThat(limit.rejected(Priority.NORMAL)).isEqualTo(1);
+    }
+
+    @Test
+    void leavesCriticalAndStreamingRequestsAlone() throws Exception {
+        fill();
+
+        MockFilterChain login = new MockFilterChain();
+        assertThat(filter(new MockHttpServletRequest("POST", "/api/auth/login"), login).getStatus()).isEqualTo(200);
+        assertThat(login.getRequest()).isNotNull();
+
+        MockFilterChain stream = new MockFilterChain();
+        assertThat(filter(new MockHttpServletRequest("GET", "/api/songs/1/stream"), stream).getStatus()).isEqualTo(200);
+        assertThat(stream.getRequest()).isNotNull();
+        assertThat(limit.inflight()).isEqualTo(4);
+    }
+
+    private void fill() {
+        for (int i = 0; i < 4; i++) {
+            limit.tryAcquire(Priority.NORMAL);
+        }
+    }
+
+    private MockHttpServletResponse filter(MockHttpServletRequest request, MockFilterChain chain) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+}
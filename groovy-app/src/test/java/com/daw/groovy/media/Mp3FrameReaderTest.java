@@ -0,0 +1,169 @@
+package com.daw.groovy.media;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class Mp3FrameReaderTest {
+
+    // MPEG-1 layer III, no CRC, 128 kbps, 44.1 kHz, no padding, stereo: 417 bytes per frame
+    private static final byte[] HEADER = {(byte) 0xFF, (byte) 0xFB, (byte) 0x90, 0x00};
+    private static final int FRAME_LENGTH = 417;
+    // Header plus MPEG-1 stereo side information
+    private static final int XING_OFFSET = 4 + 32;
+
+    @Test
+    void indexesEveryFrame() throws IOException {
+        byte[] audio = frames(10);
+
+        Mp3SeekIndex index = read(audio);
+
+        assertThat(index.getSampleRate()).isEqualTo(44100);
+        assertThat(index.getSamplesPerFrame()).isEqualTo(1152);
+        assertThat(index.getFrameCount()).isEqualTo(10);
+        assertThat(index.getFrameOffset(0)).isZero();
+        assertThat(index.getFrameOffset(9)).isEqualTo(9L * FRAME_LENGTH);
+        assertThat(index.getEndOffset()).isEqualTo(audio.length);
+    }
+
+    @Test
+    void skipsId3TagWithFooter() throws IOException {
+        // Two frame headers one frame apart inside the tag, which look like audio unless the tag is skipped
+        byte[] tagData = new byte[1000];
+        System.arraycopy(HEADER, 0, tagData, 100, HEADER.length);
+        System.arraycopy(HEADER, 0, tagData, 100 + FRAME_LENGTH, HEADER.length);
+        byte[] tag = id3v24(tagData, true);
+
+        Mp3SeekIndex index = read(concat(tag, frames(5)));
+
+        assertThat(tag.length).isEqualTo(10 + 1000 + 10);
+        assertThat(index.getFrameCount()).isEqualTo(5);
+        assertThat(index.getFrameOffset(0)).isEqualTo(tag.length);
+        assertThat(index.getEndOffset()).isEqualTo(tag.length + 5L * FRAME_LENGTH);
+    }
+
+    @Test
+    void skipsId3TagWithoutFooter() throws IOException {
+        byte[] tag = id3v24(new byte[64], false);
+
+        Mp3SeekIndex index = read(concat(tag, frames(3)));
+
+        assertThat(index.getFrameOffset(0)).isEqualTo(10 + 64);
+        assertThat(index.getFrameCount()).isEqualTo(3);
+    }
+
+    @Test
+    void skipsXingFrame() throws IOException {
+        byte[] xing = frame();
+        System.arraycopy("Xing".getBytes(StandardCharsets.US_ASCII), 0, xing, XING_OFFSET, 4);
+
+        Mp3SeekIndex index = read(concat(xing, frames(4)));
+
+        assertThat(index.getFrameCount()).isEqualTo(4);
+        assertThat(index.getFrameOffset(0)).isEqualTo(FRAME_LENGTH);
+    }
+
+    @Test
+    void skipsInfoFrameAfterId3Tag() throws IOException {
+        byte[] tag = id3v24(new byte[32], true);
+        byte[] info = frame();
+        System.arraycopy("Info".getBytes(StandardCharsets.US_ASCII), 0, info, XING_OFFSET, 4);
+
+        Mp3SeekIndex index = read(concat(tag, info, frames(2)));
+
+        assertThat(index.getFrameCount()).isEqualTo(2);
+        assertThat(index.getFrameOffset(0)).isEqualTo(tag.length + FRAME_LENGTH);
+    }
+
+    @Test
+    void stopsAtTrailingGarbage() throws IOException {
+        byte[] garbage = new byte[10_000];
+        for (int i = 0; i < garbage.length; i++) {
+            garbage[i] = (byte) (i * 31 % 0xF0);
+        }
+        byte[] id3v1 = new byte[128];
+        System.arraycopy("TAG".getBytes(StandardCharsets.US_ASCII), 0, id3v1, 0, 3);
+
+        Mp3SeekIndex index = read(concat(frames(6), id3v1, garbage));
+
+        assertThat(index.getFrameCount()).isEqualTo(6);
+        assertThat(index.getEndOffset()).isEqualTo(6L * FRAME_LENGTH);
+    }
+
+    @Test
+    void resyncsOverShortJunkBetweenFrames() throws IOException {
+        Mp3SeekIndex index = read(concat(frames(2), new byte[100], frames(2)));
+
+        assertThat(index.getFrameCount()).isEqualTo(4);
+        assertThat(index.getFrameOffset(2)).isEqualTo(2L * FRAME_LENGTH + 100);
+    }
+
+    @Test
+    void keepsTruncatedLastFrame() throws IOException {
+        byte[] audio = concat(frames(3), new byte[] {HEADER[0], HEADER[1], HEADER[2], HEADER[3], 0, 0});
+
+        Mp3SeekIndex index = read(audio);
+
+        assertThat(index.getFrameCount()).isEqualTo(4);
+        assertThat(index.getEndOffset()).isEqualTo(audio.length);
+    }
+
+    @Test
+    void findsNoFramesInOtherContent() throws IOException {
+        byte[] text = "not audio at all".repeat(1000).getBytes(StandardCharsets.US_ASCII);
+
+        assertThat(read(text)).isNull();
+        assertThat(read(new byte[0])).isNull();
+    }
+
+    private static Mp3SeekIndex read(byte[] content) throws IOException {
+        return Mp3FrameReader.readIndex(new ByteArrayInputStream(content));
+    }
+
+    private static byte[] frame() {
+        byte[] frame = new byte[FRAME_LENGTH];
+        System.arraycopy(HEADER, 0, frame, 0, HEADER.length);
+        return frame;
+    }
+
+    private static byte[] frames(int count) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < count; i++) {
+            out.writeBytes(frame());
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * An ID3v2.4 tag around the given frame data, with a footer if asked for
+     */
+    private static byte[] id3v24(byte[] data, boolean footer) {
+        byte[] size = {
+            (byte) ((data.length >> 21) & 0x7F), (byte) ((data.length >> 14) & 0x7F),
+            (byte) ((data.length >> 7) & 0x7F), (byte) (data.length & 0x7F)
+        };
+        byte flags = footer ? (byte) 0x10 : 0;
+        ByteArrayOutputStream tag = new ByteArrayOutputStream();
+        tag.writeBytes(new byte[] {'I', 'D', '3', 4, 0, flags});
+        tag.writeBytes(size);
+        tag.writeBytes(data);
+        if (footer) {
+            tag.writeBytes(new byte[] {'3', 'D', 'I', 4, 0, flags});
+            tag.writeBytes(size);
+        }
+        return tag.toByteArray();
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.writeBytes(part);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,152 @@
+package com.daw.groovy.storage;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.daw.groovy.entity.StoredFile;
+import com.daw.groovy.exception.StorageFileNotFoundException;
+import com.daw.groovy.repository.StoredFileRepository;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+// Runs outside a test transaction, since the service commits on its own and the stores race each other
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ContentAddressedStorageServiceTest {
+
+    private static final String SHA256 = "a".repeat(64);
+
+    @Autowired
+    private StoredFileRepository storedFileRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @TempDir
+    private Path dir;
+
+    private final Set<String> onDisk = ConcurrentHashMap.newKeySet();
+    private final List<String> delegateStores = new ArrayList<>();
+    private StorageService delegate;
+    private ContentAddressedStorageService storage;
+
+    @BeforeEach
+    void setUp() {
+        storedFileRepository.deleteAll();
+        delegate = mock(StorageService.class);
+        when(delegate.loadAsFileResource(anyString())).thenAnswer(invocation -> {
+            String filename = invocation.getArgument(0);
+            if (!onDisk.contains(filename)) {
+                throw new StorageFileNotFoundException("Could not read file: " + filename);
+            }
+            return new FileSystemResource(dir.resolve(filename));
+        });
+        storage = new ContentAddressedStorageService(delegate, storedFileRepository, transactionManager);
+    }
+
+    @Test
+    void sharesOneFileBetweenUploadsOfTheSameContent() throws Exception {
+        storesOnDisk(null);
+
+        assertThat(storage.store(staged("a.mp3"))).isEqualTo(SHA256 + ".mp3");
+        StagedFile second = staged("b.mp3");
+        assertThat(storage.store(second)).isEqualTo(SHA256 + ".mp3");
+
+        assertThat(delegateStores).hasSize(1);
+        assertThat(Files.exists(second.path())).isFalse();
+        assertThat(refCount(SHA256 + ".mp3")).isEqualTo(2);
+    }
+
+    @Test
+    void countsBothReferencesWhenTheSameContentIsFirstStoredConcurrently() throws Exception {
+        // Holds each store of the file until the other one arrives too, or for a second if it never does
+        CyclicBarrier barrier = new CyclicBarrier(2);
+        storesOnDisk(barrier);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            StagedFile first = staged("a.mp3");
+            StagedFile second = staged("b.mp3");
+            Future<String> firstName = executor.submit(() -> storage.store(first));
+            Future<String> secondName = executor.submit(() -> storage.store(second));
+
+            assertThat(firstName.get(10, TimeUnit.SECONDS)).isEqualTo(SHA256 + ".mp3");
+            assertThat(secondName.get(10, TimeUnit.SECONDS)).isEqualTo(SHA256 + ".mp3");
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(delegateStores).hasSize(1);
+        assertThat(refCount(SHA256 + ".mp3")).isEqualTo(2);
+    }
+
+    @Test
+    void keepsTheFileUntilTheLastReferenceIsReleased() throws Exception {
+        storesOnDisk(null);
+        doAnswer(invocation -> onDisk.remove(invocation.<String>getArgument(0))).when(delegate).delete(anyString());
+        String name = storage.store(staged("a.mp3"));
+        storage.store(staged("b.mp3"));
+
+        storage.delete(name);
+        assertThat(onDisk).contains(name);
+        assertThat(refCount(name)).isEqualTo(1);
+
+        storage.delete(name);
+        assertThat(onDisk).doesNotContain(name);
+        assertThat(storedFileRepository.existsById(name)).isFalse();
+    }
+
+    private void storesOnDisk(CyclicBarrier barrier) {
+        doAnswer(invocation -> {
+            if (barrier != null) {
+                try {
+                    barrier.await(1, TimeUnit.SECONDS);
+                } catch (TimeoutException | BrokenBarrierException e) {
+                    // The other store is waiting for the row lock, as it should
+                }
+            }
+            String filename = invocation.getArgument(1);
+            synchronized (delegateStores) {
+                delegateStores.add(filename);
+            }
+            onDisk.add(filename);
+            return filename;
+        }).when(delegate).store(any(StagedFile.class), anyString());
+    }
+
+    private StagedFile staged(String originalFilename) throws Exception {
+        Path path = Files.createTempFile(dir, "staged", ".tmp");
+        Files.write(path, new byte[] {1, 2, 3});
+        return new StagedFile(path, originalFilename, 3, SHA256);
+    }
+
+    private int refCount(String filename) {
+        return storedFileRepository.findById(filename).map(StoredFile::getRefCount).orElse(0);
+    }
+}
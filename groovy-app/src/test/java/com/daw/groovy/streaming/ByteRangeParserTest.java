@@ -0,0 +1,87 @@
+package com.daw.groovy.streaming;
+
+import org.junit.jupiter.api.Test;
+
+import com.daw.groovy.exception.RangeNotSatisfiableException;
+
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ByteRangeParserTest {
+
+    private static final long LENGTH = 10_000;
+
+    @Test
+    void parsesClosedAndOpenEndedRanges() {
+        assertThat(ByteRangeParser.parse("bytes=0-499", LENGTH)).containsExactly(new ByteRange(0, 499));
+        assertThat(ByteRangeParser.parse("bytes=9500-", LENGTH)).containsExactly(new ByteRange(9500, 9999));
+        assertThat(ByteRangeParser.parse("Bytes=100-199", LENGTH)).containsExactly(new ByteRange(100, 199));
+    }
+
+    @Test
+    void clampsRangesPastTheEnd() {
+        assertThat(ByteRangeParser.parse("bytes=9000-20000", LENGTH)).containsExactly(new ByteRange(9000, 9999));
+    }
+
+    @Test
+    void parsesSuffixRanges() {
+        assertThat(ByteRangeParser.parse("bytes=-500", LENGTH)).containsExactly(new ByteRange(9500, 9999));
+        // A suffix longer than the content selects all of it
+        assertThat(ByteRangeParser.parse("bytes=-20000", LENGTH)).containsExactly(new ByteRange(0, 9999));
+    }
+
+    @Test
+    void coalescesOverlappingAndNearbyRanges() {
+        assertThat(ByteRangeParser.parse("bytes=0-499,200-799", LENGTH)).containsExactly(new ByteRange(0, 799));
+        assertThat(ByteRangeParser.parse("bytes=0-99,100-199", LENGTH)).containsExactly(new ByteRange(0, 199));
+        assertThat(ByteRangeParser.parse("bytes=0-99,150-199", LENGTH)).containsExactly(new ByteRange(0, 199));
+        assertThat(ByteRangeParser.parse("bytes=-500,9000-9600", LENGTH)).containsExactly(new ByteRange(9000, 9999));
+    }
+
+    @Test
+    void keepsDistantRangesApartInOrder() {
+        assertThat(ByteRangeParser.parse("bytes=5000-5099,0-99", LENGTH))
+                .containsExactly(new ByteRange(0, 99), new ByteRange(5000, 5099));
+    }
+
+    @Test
+    void dropsUnsatisfiableRangesWhenOthersOverlap() {
+        assertThat(ByteRangeParser.parse("bytes=20000-,0-99", LENGTH)).containsExactly(new ByteRange(0, 99));
+    }
+
+    @Test
+    void rejectsRangesThatAllMissTheContent() {
+        assertThatThrownBy(() -> ByteRangeParser.parse("bytes=10000-", LENGTH))
+                .isInstanceOf(RangeNotSatisfiableException.class)
+                .satisfies(e -> assertThat(((RangeNotSatisfiableException) e).getCompleteLength()).isEqualTo(LENGTH));
+        assertThatThrownBy(() -> ByteRangeParser.parse("bytes=-0", LENGTH))
+                .isInstanceOf(RangeNotSatisfiableException.class);
+        assertThatThrownBy(() -> ByteRangeParser.parse("bytes=0-", 0))
+                .isInstanceOf(RangeNotSatisfiableException.class);
+    }
+
+    @Test
+    void ignoresInvalidHeaders() {
+        assertThat(ByteRangeParser.parse(null, LENGTH)).isEmpty();
+        assertThat(ByteRangeParser.parse("items=0-99", LENGTH)).isEmpty();
+        assertThat(ByteRangeParser.parse("bytes=", LENGTH)).isEmpty();
+        assertThat(ByteRangeParser.parse("bytes=500-100", LENGTH)).isEmpty();
+        assertThat(ByteRangeParser.parse("bytes=abc-def", LENGTH)).isEmpty();
+        assertThat(ByteRangeParser.parse("bytes=0-99,-", LENGTH)).isEmpty();
+        assertThat(ByteRangeParser.parse("bytes=+5-10", LENGTH)).isEmpty();
+        // A single invalid range invalidates the whole header
+        assertThat(ByteRangeParser.parse("bytes=0-99,50", LENGTH)).isEmpty();
+    }
+
+    @Test
+    void ignoresTooManyRanges() {
+        String header = "bytes=" + IntStream.range(0, ByteRangeParser.MAX_RANGES + 1)
+                .mapToObj(i -> i * 1000 + "-" + (i * 1000 + 1))
+                .collect(Collectors.joining(","));
+
+        assertThat(ByteRangeParser.parse(header, 1_000_000)).isEmpty();
+    }
+}
@@ -0,0 +1,183 @@
+package com.daw.groovy.upload;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+import org.springframework.web.multipart.MultipartException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MultipartStreamTest {
+
+    private static final String BOUNDARY = "----groovy7MA4YWxkTrZu0gW";
+
+    @Test
+    void readsFieldsAndFiles() throws IOException {
+        byte[] file = "ID3 not really audio".getBytes(StandardCharsets.US_ASCII);
+        byte[] body = body(field("song", "{\"title\":\"Still D.R.E.\"}"), file("audioFile", "still-dre.mp3", file));
+
+        MultipartStream stream = new MultipartStream(new ByteArrayInputStream(body), BOUNDARY);
+
+        MultipartStream.Part song = stream.nextPart();
+        assertThat(song.disposition().getName()).isEqualTo("song");
+        assertThat(new String(song.content().readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("{\"title\":\"Still D.R.E.\"}");
+        MultipartStream.Part audio = stream.nextPart();
+        assertThat(audio.disposition().getFilename()).isEqualTo("still-dre.mp3");
+        assertThat(audio.headers().getFirst("Content-Type")).isEqualTo("application/octet-stream");
+        assertThat(audio.content().readAllBytes()).isEqualTo(file);
+        assertThat(stream.nextPart()).isNull();
+    }
+
+    @Test
+    void findsDelimitersSplitAcrossReads() throws IOException {
+        // Large enough for delimiters to straddle refills of the 64 KB window
+        byte[] file = new byte[200_000];
+        Arrays.fill(file, (byte) 'a');
+        byte[] body = body(file("first", "a.bin", file), file("second", "b.bin", file));
+
+        for (int chunk : new int[] {1, 7, BOUNDARY.length() + 3, 65_531}) {
+            MultipartStream stream = new MultipartStream(new ChunkedInputStream(body, chunk), BOUNDARY);
+            assertThat(stream.nextPart().content().readAllBytes()).as("first part, %d byte reads", chunk).isEqualTo(file);
+            assertThat(stream.nextPart().content().readAllBytes()).as("second part, %d byte reads", chunk).isEqualTo(file);
+            assertThat(stream.nextPart()).isNull();
+        }
+    }
+
+    @Test
+    void keepsContentThatOnlyLooksLikeADelimiter() throws IOException {
+        byte[] file = ("before\r\n--" + BOUNDARY.substring(0, BOUNDARY.length() - 1) + "X\r\n--after")
+                .getBytes(StandardCharsets.US_ASCII);
+        byte[] body = body(file("audioFile", "a.bin", file));
+
+        MultipartStream stream = new MultipartStream(new ChunkedInputStream(body, 5), BOUNDARY);
+
+        assertThat(stream.nextPart().content().readAllBytes()).isEqualTo(file);
+        assertThat(stream.nextPart()).isNull();
+    }
+
+    @Test
+    void skipsUnreadParts() throws IOException {
+        byte[] body = body(file("first", "a.bin", new byte[100_000]), field("second", "value"));
+
+        MultipartStream stream = new MultipartStream(new ByteArrayInputStream(body), BOUNDARY);
+        stream.nextPart();
+
+        MultipartStream.Part second = stream.nextPart();
+        assertThat(second.disposition().getName()).isEqualTo("second");
+        assertThat(new String(second.content().readAllBytes(), StandardCharsets.UTF_8)).isEqualTo("value");
+    }
+
+    @Test
+    void rejectsOversizedPartHeaders() {
+        String header = "--" + BOUNDARY + "\r\n"
+                + "Content-Disposition: form-data; name=\"song\"\r\n"
+                + "X-Padding: " + "x".repeat(20_000) + "\r\n\r\n"
+                + "value\r\n--" + BOUNDARY + "--\r\n";
+
+        MultipartStream stream = new MultipartStream(
+                new ByteArrayInputStream(header.getBytes(StandardCharsets.US_ASCII)), BOUNDARY);
+
+        assertThatThrownBy(stream::nextPart)
+                .isInstanceOf(MultipartException.class)
+                .hasMessageContaining("headers too large");
+    }
+
+    @Test
+    void rejectsOversizedPartsWhileReading() throws IOException {
+        byte[] body = body(file("audioFile", "a.bin", new byte[10_000]));
+
+        MultipartStream stream = new MultipartStream(new ByteArrayInputStream(body), BOUNDARY);
+        InputStream content = new SizeLimitedInputStream(stream.nextPart().content(), 4_096);
+
+        assertThatThrownBy(content::readAllBytes).isInstanceOf(MaxUploadSizeExceededException.class);
+    }
+
+    @Test
+    void rejectsBodyTruncatedInsideAPart() throws IOException {
+        byte[] body = body(file("audioFile", "a.bin", new byte[10_000]));
+        byte[] truncated = Arrays.copyOf(body, 5_000);
+
+        MultipartStream stream = new MultipartStream(new ByteArrayInputStream(truncated), BOUNDARY);
+        InputStream content = stream.nextPart().content();
+
+        assertThatThrownBy(content::readAllBytes)
+                .isInstanceOf(MultipartException.class)
+                .hasMessageContaining("ended inside a part");
+    }
+
+    @Test
+    void rejectsBodyTruncatedInsideHeaders() {
+        byte[] body = ("--" + BOUNDARY + "\r\nContent-Disposition: form-data; na").getBytes(StandardCharsets.US_ASCII);
+
+        MultipartStream stream = new MultipartStream(new ByteArrayInputStream(body), BOUNDARY);
+
+        assertThatThrownBy(stream::nextPart)
+                .isInstanceOf(MultipartException.class)
+                .hasMessageContaining("inside part headers");
+    }
+
+    @Test
+    void rejectsBodyWithoutClosingDelimiter() throws IOException {
+        byte[] body = ("--" + BOUNDARY + "\r\nContent-Disposition: form-data; name=\"song\"\r\n\r\nvalue\r\n--" + BOUNDARY)
+                .getBytes(StandardCharsets.US_ASCII);
+
+        MultipartStream stream = new MultipartStream(new ByteArrayInputStream(body), BOUNDARY);
+        stream.nextPart().content().readAllBytes();
+
+        assertThatThrownBy(stream::nextPart)
+                .isInstanceOf(MultipartException.class)
+                .hasMessageContaining("without a closing delimiter");
+    }
+
+    private static byte[] field(String name, String value) {
+        return part("Content-Disposition: form-data; name=\"" + name + "\"\r\n",
+                value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static byte[] file(String name, String filename, byte[] content) {
+        return part("Content-Disposition: form-data; name=\"" + name + "\"; filename=\"" + filename + "\"\r\n"
+                + "Content-Type: application/octet-stream\r\n", content);
+    }
+
+    private static byte[] part(String headers, byte[] content) {
+        ByteArrayOutputStream part = new ByteArrayOutputStream();
+        part.writeBytes(("--" + BOUNDARY + "\r\n" + headers + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        part.writeBytes(content);
+        part.writeBytes("\r\n".getBytes(StandardCharsets.US_ASCII));
+        return part.toByteArray();
+    }
+
+    private static byte[] body(byte[]... parts) {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            body.writeBytes(part);
+        }
+        body.writeBytes(("--" + BOUNDARY + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+        return body.toByteArray();
+    }
+
+    /**
+     * Hands out at most a fixed number of bytes per read, like a slow connection
+     */
+    private static final class ChunkedInputStream extends ByteArrayInputStream {
+
+        private final int chunk;
+
+        ChunkedInputStream(byte[] content, int chunk) {
+            super(content);
+            this.chunk = chunk;
+        }
+
+        @Override
+        public synchronized int read(byte[] b, int off, int len) {
+            return super.read(b, off, Math.min(len, chunk));
+        }
+    }
+}
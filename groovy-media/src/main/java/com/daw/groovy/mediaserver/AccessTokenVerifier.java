@@ -0,0 +1,16 @@
+package com.daw.groovy.mediaserver;
+
+import java.util.Optional;
+
+/**
+ * Checks the bearer tokens of requests for content that needs a signed-in user
+ */
+@FunctionalInterface
+public interface AccessTokenVerifier {
+
+    /**
+     * @param token The token from the Authorization header
+     * @return The user the token was issued to, or empty if it is not valid
+     */
+    Optional<String> verify(String token);
+}
@@ -0,0 +1,45 @@
+package com.daw.groovy.mediaserver;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+/**
+ * A file the media server can send, with what it needs to answer conditional and range
+ * requests. Its content is either read from a path, which lets the kernel send it with
+ * sendfile, or already held in memory, such as a mapping of the file.
+ *
+ * @param path Where the file is, or null if it is held in memory
+ * @param content The whole file, or null to read it from the path
+ * @param length The file size in bytes
+ * @param lastModified The modification time in milliseconds since the epoch
+ * @param contentType The Content-Type to serve it with
+ * @param cacheControl The Cache-Control policy, or null for none
+ * @param entityTag The ETag, quoted
+ */
+public record MediaFile(Path path, ByteBuffer content, long length, long lastModified,
+                        String contentType, String cacheControl, String entityTag) {
+
+    public static MediaFile onDisk(Path path, long length, long lastModified, String contentType, String cacheControl) {
+        return new MediaFile(path, null, length, lastModified, contentType, cacheControl,
+                entityTag(length, lastModified));
+    }
+
+    public static MediaFile inMemory(ByteBuffer content, long lastModified, String contentType, String cacheControl) {
+        return inMemory(content, lastModified, contentType, cacheControl, entityTag(content.remaining(), lastModified));
+    }
+
+    /**
+     * @param entityTag The ETag, quoted, for content whose tag does not follow from its size and modification time
+     */
+    public static MediaFile inMemory(ByteBuffer content, long lastModified, String contentType, String cacheControl,
+                                     String entityTag) {
+        return new MediaFile(null, content, content.remaining(), lastModified, contentType, cacheControl, entityTag);
+    }
+
+    /**
+     * @return The ETag the API gives files it serves from storage
+     */
+    private static String entityTag(long length, long lastModified) {
+        return "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+    }
+}
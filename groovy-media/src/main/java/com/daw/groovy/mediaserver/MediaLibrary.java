@@ -0,0 +1,23 @@
+package com.daw.groovy.mediaserver;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Where the media server finds what it serves. Lookups may block, on a database or the
+ * file system, so they are never made on the server's I/O threads.
+ */
+public interface MediaLibrary {
+
+    /**
+     * @param filename The stored filename, as in /api/files/{filename}
+     * @return The file, or empty if there is none by that name
+     */
+    Optional<MediaFile> file(String filename) throws IOException;
+
+    /**
+     * @param songId The ID of the song, as in /api/songs/{id}/stream
+     * @return The song's audio, or empty if there is no such song or it has no audio
+     */
+    Optional<MediaFile> songAudio(long songId) throws IOException;
+}
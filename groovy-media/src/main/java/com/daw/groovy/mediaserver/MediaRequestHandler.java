@@ -0,0 +1,366 @@
+package com.daw.groovy.mediaserver;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.DefaultFileRegion;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.handler.codec.DateFormatter;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.DefaultHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.FullHttpResponse;
+import io.netty.handler.codec.http.HttpHeaderNames;
+import io.netty.handler.codec.http.HttpHeaders;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponse;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpUtil;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.handler.codec.http.LastHttpContent;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import io.netty.handler.timeout.IdleStateEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Answers GET and HEAD requests for stored files and song audio the way the API does:
+ * same entity tags, conditional requests, a single byte range and CORS for the frontend.
+ * Multiple ranges are answered with the whole file, which the HTTP specification allows.
+ * Resized images and seeking by time need the application and are left to the API.
+ */
+@Slf4j
+@RequiredArgsConstructor
+class MediaRequestHandler extends SimpleChannelInboundHandler<FullHttpRequest> {
+
+    private static final String FILES_PREFIX = "/api/files/";
+    private static final Pattern SONG_STREAM = Pattern.compile("/api/songs/(\\d{1,18})/stream");
+    private static final String BEARER_PREFIX = "Bearer ";
+    private static final String BYTES_UNIT = "bytes";
+    private static final ByteRange UNSATISFIABLE = new ByteRange(-1, -1);
+
+    private final MediaLibrary library;
+    private final AccessTokenVerifier tokenVerifier;
+    private final String allowedOrigin;
+
+    /**
+     * A byte range, both ends inclusive
+     */
+    private record ByteRange(long start, long end) {
+
+        long length() {
+            return end - start + 1;
+        }
+    }
+
+    @Override
+    protected void channelRead0(ChannelHandlerContext ctx, FullHttpRequest request) throws IOException {
+        if (!request.decoderResult().isSuccess()) {
+            sendError(ctx, request, HttpResponseStatus.BAD_REQUEST, "Malformed request");
+            return;
+        }
+        if (HttpMethod.OPTIONS.equals(request.method())) {
+            sendPreflight(ctx, request);
+            return;
+        }
+        if (!HttpMethod.GET.equals(request.method()) && !HttpMethod.HEAD.equals(request.method())) {
+            sendError(ctx, request, HttpResponseStatus.METHOD_NOT_ALLOWED, "Only GET and HEAD are supported");
+            return;
+        }
+
+        QueryStringDecoder uri = new QueryStringDecoder(request.uri());
+        String path = uri.path();
+        Matcher songStream = SONG_STREAM.matcher(path);
+        Optional<MediaFile> file;
+        if (path.startsWith(FILES_PREFIX)) {
+            String filename = path.substring(FILES_PREFIX.length());
+            if (filename.isEmpty() || filename.contains("/") || filename.contains("\\") || filename.startsWith(".")) {
+                sendError(ctx, request, HttpResponseStatus.BAD_REQUEST, "Invalid filename");
+                return;
+            }
+            if (uri.parameters().containsKey("size")) {
+                sendError(ctx, request, HttpResponseStatus.BAD_REQUEST, "Resized images are served by the API");
+                return;
+            }
+            file = lookUp(ctx, request, () -> library.file(filename));
+        } else if (songStream.matches()) {
+            if (uri.parameters().containsKey("t")) {
+                sendError(ctx, request, HttpResponseStatus.BAD_REQUEST, "Seeking by time is served by the API");
+                return;
+            }
+            if (authenticate(request).isEmpty()) {
+                sendError(ctx, request, HttpResponseStatus.UNAUTHORIZED, "Authentication is required");
+                return;
+            }
+            long songId = Long.parseLong(songStream.group(1));
+            file = lookUp(ctx, request, () -> library.songAudio(songId));
+        } else {
+            sendError(ctx, request, HttpResponseStatus.NOT_FOUND, "Not found");
+            return;
+        }
+
+        if (file == null) {
+            return;
+        }
+        if (file.isEmpty()) {
+            sendError(ctx, request, HttpResponseStatus.NOT_FOUND, "File not found");
+            return;
+        }
+        try {
+            send(ctx, request, file.get());
+        } catch (NoSuchFileException e) {
+            // Deleted since it was looked up
+            sendError(ctx, request, HttpResponseStatus.NOT_FOUND, "File not found");
+        }
+    }
+
+    @Override
+    public void userEventTriggered(ChannelHandlerContext ctx, Object event) throws Exception {
+        if (event instanceof IdleStateEvent) {
+            ctx.close();
+            return;
+        }
+        super.userEventTriggered(ctx, event);
+    }
+
+    @Override
+    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+        if (cause instanceof IOException) {
+            // Usually the client going away mid-response
+            log.debug("Closing media connection: {}", cause.getMessage());
+        } else {
+            log.warn("Closing media connection after an unexpected error", cause);
+        }
+        ctx.close();
+    }
+
+    private interface Lookup {
+        Optional<MediaFile> find() throws IOException;
+    }
+
+    /**
+     * @return What the lookup found, or null if it failed and an error was sent instead
+     */
+    private Optional<MediaFile> lookUp(ChannelHandlerContext ctx, FullHttpRequest request, Lookup lookup) {
+        try {
+            return lookup.find();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not look up {}", request.uri(), e);
+            sendError(ctx, request, HttpResponseStatus.INTERNAL_SERVER_ERROR, "An unexpected error occurred");
+            return null;
+        }
+    }
+
+    private Optional<String> authenticate(FullHttpRequest request) {
+        String authorization = request.headers().get(HttpHeaderNames.AUTHORIZATION);
+        if (authorization == null || !authorization.startsWith(BEARER_PREFIX)) {
+            return Optional.empty();
+        }
+        return tokenVerifier.verify(authorization.substring(BEARER_PREFIX.length()));
+    }
+
+    private void send(ChannelHandlerContext ctx, FullHttpRequest request, MediaFile file) throws IOException {
+        String entityTag = file.entityTag();
+        HttpResponse response = new DefaultHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.OK);
+        HttpHeaders headers = response.headers();
+        headers.set(HttpHeaderNames.ETAG, entityTag);
+        headers.set(HttpHeaderNames.LAST_MODIFIED, DateFormatter.format(new Date(file.lastModified())));
+        if (file.cacheControl() != null) {
+            headers.set(HttpHeaderNames.CACHE_CONTROL, file.cacheControl());
+        }
+        allowOrigin(request, headers);
+
+        if (isNotModified(request, entityTag, file.lastModified())) {
+            response.setStatus(HttpResponseStatus.NOT_MODIFIED);
+            finish(ctx, request, response);
+            return;
+        }
+
+        headers.set(HttpHeaderNames.CONTENT_TYPE, file.contentType());
+        headers.set(HttpHeaderNames.ACCEPT_RANGES, BYTES_UNIT);
+        ByteRange range = new ByteRange(0, file.length() - 1);
+        String rangeHeader = request.headers().get(HttpHeaderNames.RANGE);
+        if (rangeHeader != null && HttpMethod.GET.equals(request.method())
+                && ifRangeMatches(request, entityTag, file.lastModified())) {
+            ByteRange requested = parseRange(rangeHeader, file.length());
+            if (requested == UNSATISFIABLE) {
+                response.setStatus(HttpResponseStatus.REQUESTED_RANGE_NOT_SATISFIABLE);
+                headers.set(HttpHeaderNames.CONTENT_RANGE, BYTES_UNIT + " */" + file.length());
+                HttpUtil.setContentLength(response, 0);
+                finish(ctx, request, response);
+                return;
+            }
+            if (requested != null) {
+                range = requested;
+                response.setStatus(HttpResponseStatus.PARTIAL_CONTENT);
+                headers.set(HttpHeaderNames.CONTENT_RANGE,
+                        BYTES_UNIT + " " + range.start() + "-" + range.end() + "/" + file.length());
+            }
+        }
+
+        long count = Math.max(range.length(), 0);
+        HttpUtil.setContentLength(response, count);
+        if (count == 0 || HttpMethod.HEAD.equals(request.method())) {
+            finish(ctx, request, response);
+            return;
+        }
+        if (file.content() != null) {
+            ctx.write(response);
+            ctx.write(Unpooled.wrappedBuffer(file.content().slice(Math.toIntExact(range.start()), Math.toIntExact(count))));
+        } else {
+            // Opened before the headers are written, so a missing file can still get a 404
+            FileChannel channel = FileChannel.open(file.path(), StandardOpenOption.READ);
+            ctx.write(response);
+            ctx.write(new DefaultFileRegion(channel, range.start(), count));
+        }
+        finish(ctx, request, null);
+    }
+
+    private void finish(ChannelHandlerContext ctx, FullHttpRequest request, HttpResponse response) {
+        boolean keepAlive = HttpUtil.isKeepAlive(request);
+        if (response != null) {
+            HttpUtil.setKeepAlive(response, keepAlive);
+            ctx.write(response);
+        }
+        ChannelFuture done = ctx.writeAndFlush(LastHttpContent.EMPTY_LAST_CONTENT);
+        if (!keepAlive) {
+            done.addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
+    private boolean isNotModified(FullHttpRequest request, String entityTag, long lastModified) {
+        String ifNoneMatch = request.headers().get(HttpHeaderNames.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            for (String tag : ifNoneMatch.split(",")) {
+                tag = tag.trim();
+                if (tag.equals("*") || (tag.startsWith("W/") ? tag.substring(2) : tag).equals(entityTag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        String header = request.headers().get(HttpHeaderNames.IF_MODIFIED_SINCE);
+        Date ifModifiedSince = header != null ? DateFormatter.parseHttpDate(header) : null;
+        return ifModifiedSince != null && lastModified / 1000 <= ifModifiedSince.getTime() / 1000;
+    }
+
+    private boolean ifRangeMatches(FullHttpRequest request, String entityTag, long lastModified) {
+        String ifRange = request.headers().get(HttpHeaderNames.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        ifRange = ifRange.trim();
+        if (ifRange.startsWith("\"")) {
+            return ifRange.equals(entityTag);
+        }
+        Date date = DateFormatter.parseHttpDate(ifRange);
+        return date != null && date.getTime() / 1000 == lastModified / 1000;
+    }
+
+    /**
+     * @return The requested range; null if the header is ignored, being malformed or
+     *         asking for several ranges; {@link #UNSATISFIABLE} if no byte of it exists
+     */
+    private ByteRange parseRange(String header, long length) {
+        if (!header.startsWith(BYTES_UNIT + "=") || header.indexOf(',') >= 0) {
+            return null;
+        }
+        String spec = header.substring(BYTES_UNIT.length() + 1).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0 || length == 0) {
+                    return UNSATISFIABLE;
+                }
+                return new ByteRange(Math.max(length - suffix, 0), length - 1);
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? length - 1 : Long.parseLong(last);
+            if (start >= length) {
+                return UNSATISFIABLE;
+            }
+            if (end < start) {
+                return null;
+            }
+            return new ByteRange(start, Math.min(end, length - 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private void sendPreflight(ChannelHandlerContext ctx, FullHttpRequest request) {
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, HttpResponseStatus.NO_CONTENT);
+        HttpHeaders headers = response.headers();
+        if (allowOrigin(request, headers)) {
+            headers.set(HttpHeaderNames.ACCESS_CONTROL_ALLOW_METHODS, "GET, HEAD, OPTIONS");
+            headers.set(HttpHeaderNames.ACCESS_CONTROL_ALLOW_HEADERS,
+                    "Authorization, Range, If-Range, If-None-Match, If-Modified-Since");
+            headers.set(HttpHeaderNames.ACCESS_CONTROL_MAX_AGE, 3600);
+        }
+        finish(ctx, request, response);
+    }
+
+    private boolean allowOrigin(FullHttpRequest request, HttpHeaders headers) {
+        String origin = request.headers().get(HttpHeaderNames.ORIGIN);
+        if (origin == null || !origin.equals(allowedOrigin)) {
+            return false;
+        }
+        headers.set(HttpHeaderNames.ACCESS_CONTROL_ALLOW_ORIGIN, origin);
+        headers.set(HttpHeaderNames.ACCESS_CONTROL_ALLOW_CREDENTIALS, true);
+        headers.set(HttpHeaderNames.ACCESS_CONTROL_EXPOSE_HEADERS, "Content-Range, Accept-Ranges, Content-Length, ETag");
+        headers.add(HttpHeaderNames.VARY, HttpHeaderNames.ORIGIN);
+        return true;
+    }
+
+    private void sendError(ChannelHandlerContext ctx, FullHttpRequest request, HttpResponseStatus status, String message) {
+        // Shaped like the API's ErrorResponse
+        String body = "{\"message\":\"" + escape(message) + "\",\"status\":" + status.code()
+                + ",\"path\":\"" + escape(new QueryStringDecoder(request.uri()).rawPath()) + "\"}";
+        FullHttpResponse response = new DefaultFullHttpResponse(HttpVersion.HTTP_1_1, status,
+                Unpooled.copiedBuffer(body, StandardCharsets.UTF_8));
+        HttpHeaders headers = response.headers();
+        headers.set(HttpHeaderNames.CONTENT_TYPE, "application/json");
+        HttpUtil.setContentLength(response, response.content().readableBytes());
+        if (status == HttpResponseStatus.UNAUTHORIZED) {
+            headers.set(HttpHeaderNames.WWW_AUTHENTICATE, "Bearer");
+        }
+        allowOrigin(request, headers);
+        boolean keepAlive = HttpUtil.isKeepAlive(request);
+        HttpUtil.setKeepAlive(response, keepAlive);
+        ChannelFuture done = ctx.writeAndFlush(response);
+        if (!keepAlive) {
+            done.addListener(ChannelFutureListener.CLOSE);
+        }
+    }
+
+    private static String escape(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (char c : value.toCharArray()) {
+            if (c == '"' || c == '\\') {
+                escaped.append('\\').append(c);
+            } else if (c < 0x20) {
+                escaped.append(String.format("\\u%04x", (int) c));
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+}
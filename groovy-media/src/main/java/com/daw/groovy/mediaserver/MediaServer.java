@@ -0,0 +1,113 @@
+package com.daw.groovy.mediaserver;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.handler.codec.http.HttpObjectAggregator;
+import io.netty.handler.codec.http.HttpServerCodec;
+import io.netty.handler.timeout.IdleStateHandler;
+import io.netty.util.concurrent.DefaultEventExecutorGroup;
+import io.netty.util.concurrent.EventExecutorGroup;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serves stored files (/api/files/{filename}) and song audio (/api/songs/{id}/stream) on
+ * a port of its own, so a spike in streams does not take threads from the JSON API.
+ *
+ * A few event loop threads handle every connection and send files with sendfile through
+ * {@link io.netty.channel.FileRegion}s, so a stream costs no thread while it is being
+ * sent. Looking files up and checking tokens may block, so requests are handled on a
+ * separate, bounded pool. The server can be started inside the application or on its
+ * own, by a process that has nothing else to do.
+ */
+@Slf4j
+public class MediaServer {
+
+    // Requests are GETs, so this only has to hold headers
+    private static final int MAX_REQUEST_SIZE = 16 * 1024;
+
+    private final MediaLibrary library;
+    private final AccessTokenVerifier tokenVerifier;
+    private final Settings settings;
+
+    private EventLoopGroup acceptGroup;
+    private EventLoopGroup ioGroup;
+    private EventExecutorGroup handlerGroup;
+    private Channel channel;
+
+    /**
+     * @param port The port to listen on, or 0 for any free port
+     * @param ioThreads Event loop threads, or 0 for twice the number of processors
+     * @param handlerThreads Threads looking files up and checking tokens
+     * @param idleTimeoutSeconds How long a connection may go without reading a request or
+     *                           taking any of its response before it is closed
+     * @param allowedOrigin The origin allowed to make cross-origin requests, or null for none
+     */
+    public record Settings(int port, int ioThreads, int handlerThreads, int idleTimeoutSeconds, String allowedOrigin) {
+    }
+
+    public MediaServer(MediaLibrary library, AccessTokenVerifier tokenVerifier, Settings settings) {
+        this.library = library;
+        this.tokenVerifier = tokenVerifier;
+        this.settings = settings;
+    }
+
+    public synchronized void start() throws InterruptedException {
+        if (channel != null) {
+            return;
+        }
+        acceptGroup = new NioEventLoopGroup(1);
+        ioGroup = new NioEventLoopGroup(settings.ioThreads());
+        handlerGroup = new DefaultEventExecutorGroup(settings.handlerThreads());
+        ServerBootstrap bootstrap = new ServerBootstrap()
+                .group(acceptGroup, ioGroup)
+                .channel(NioServerSocketChannel.class)
+                .childHandler(new ChannelInitializer<SocketChannel>() {
+                    @Override
+                    protected void initChannel(SocketChannel ch) {
+                        ch.pipeline()
+                                .addLast(new IdleStateHandler(true, 0, 0, settings.idleTimeoutSeconds(), TimeUnit.SECONDS))
+                                .addLast(new HttpServerCodec())
+                                .addLast(new HttpObjectAggregator(MAX_REQUEST_SIZE))
+                                .addLast(handlerGroup, new MediaRequestHandler(library, tokenVerifier, settings.allowedOrigin()));
+                    }
+                });
+        try {
+            channel = bootstrap.bind(settings.port()).sync().channel();
+        } catch (RuntimeException | InterruptedException e) {
+            shutdownGroups();
+            throw e;
+        }
+        log.info("Media server listening on port {}", port());
+    }
+
+    public synchronized void stop() {
+        if (channel == null) {
+            return;
+        }
+        channel.close().syncUninterruptibly();
+        channel = null;
+        shutdownGroups();
+        log.info("Media server stopped");
+    }
+
+    /**
+     * @return The port the server listens on, or -1 if it is not running
+     */
+    public synchronized int port() {
+        return channel != null ? ((InetSocketAddress) channel.localAddress()).getPort() : -1;
+    }
+
+    private void shutdownGroups() {
+        acceptGroup.shutdownGracefully();
+        ioGroup.shutdownGracefully();
+        handlerGroup.shutdownGracefully();
+    }
+}